@@ -17,6 +17,12 @@ import lombok.*;
 @Builder
 public class User extends BaseEntity {
 
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_id_generator")
+    @SequenceGenerator(name = "user_id_generator", sequenceName = "users_id_seq",
+            allocationSize = ID_ALLOCATION_SIZE)
+    private Long id;
+
     @Column(nullable = false, unique = true, length = 50)
     private String username;
 
@@ -1,33 +1,59 @@
 package com.erp.auth.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
 
 /**
  * JWT Authentication Filter.
  * Intercepts requests to validate JWT tokens and set authentication context.
+ * The principal is built from the token claims, without loading the user.
+ * Verified tokens are cached by their SHA-256 hash until the cache TTL or the
+ * token's own expiry, whichever comes first, so repeat requests from the same
+ * terminal skip parsing and signature verification.
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider tokenProvider;
-    private final UserDetailsService userDetailsService;
+    private final Cache<String, JwtTokenProvider.VerifiedToken> verifiedTokens;
+
+    public JwtAuthenticationFilter(
+            JwtTokenProvider tokenProvider,
+            MeterRegistry meterRegistry,
+            @Value("${jwt.cache.size:10000}") long cacheSize,
+            @Value("${jwt.cache.ttl:5m}") Duration cacheTtl) {
+        this.tokenProvider = tokenProvider;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new TokenExpiry(cacheTtl))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified.tokens");
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -36,19 +62,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromToken(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            if (StringUtils.hasText(jwt)) {
+                JwtTokenProvider.VerifiedToken verified = verify(jwt);
 
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities()
-                        );
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                if (verified != null) {
+                    UserPrincipal principal = verified.principal();
+                    UsernamePasswordAuthenticationToken authentication =
+                            new UsernamePasswordAuthenticationToken(
+                                    principal,
+                                    null,
+                                    principal.getAuthorities()
+                            );
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
         } catch (Exception ex) {
             log.error("Could not set user authentication in security context", ex);
@@ -57,6 +85,31 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Authenticates the async dispatch of streamed responses as well, since the
+     * stateless security context is not carried over to it.
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    /**
+     * Returns the cached verification of the token, or verifies it and caches the result.
+     * Invalid tokens are not cached.
+     */
+    private JwtTokenProvider.VerifiedToken verify(String jwt) {
+        String key = hash(jwt);
+        JwtTokenProvider.VerifiedToken verified = verifiedTokens.getIfPresent(key);
+        if (verified == null) {
+            verified = tokenProvider.verifyToken(jwt);
+            if (verified != null) {
+                verifiedTokens.put(key, verified);
+            }
+        }
+        return verified;
+    }
+
     /**
      * Extracts JWT token from the Authorization header.
      */
@@ -67,5 +120,41 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         return null;
     }
-}
 
+    private static String hash(String jwt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(jwt.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    /**
+     * Keeps a verified token for the cache TTL, but never past the token's expiry.
+     */
+    private record TokenExpiry(Duration ttl) implements Expiry<String, JwtTokenProvider.VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, JwtTokenProvider.VerifiedToken value, long currentTime) {
+            long ttlNanos = ttl.toNanos();
+            if (value.expiresAt() == null) {
+                return ttlNanos;
+            }
+            long untilExpiry = Duration.between(Instant.now(), value.expiresAt()).toNanos();
+            return Math.max(0, Math.min(ttlNanos, untilExpiry));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, JwtTokenProvider.VerifiedToken value,
+                                      long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, JwtTokenProvider.VerifiedToken value,
+                                    long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -1,15 +1,16 @@
 package com.erp.auth.security;
 
+import com.erp.auth.entity.Role;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Date;
 
 /**
@@ -20,26 +21,38 @@ import java.util.Date;
 @Component
 public class JwtTokenProvider {
 
+    private static final String USER_ID_CLAIM = "userId";
+    private static final String ROLE_CLAIM = "role";
+    private static final String FULL_NAME_CLAIM = "fullName";
+
     private final SecretKey secretKey;
+    private final JwtParser parser;
     private final long jwtExpiration;
 
     public JwtTokenProvider(
             @Value("${jwt.secret}") String secret,
             @Value("${jwt.expiration}") long jwtExpiration) {
         this.secretKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        // Parsers are immutable and thread-safe, so one is shared by all requests
+        this.parser = Jwts.parser().verifyWith(secretKey).build();
         this.jwtExpiration = jwtExpiration;
     }
 
     /**
      * Generates a JWT token for the authenticated user.
+     * The token carries the user's ID, role and full name, so requests can be
+     * authenticated without loading the user.
      */
     public String generateToken(Authentication authentication) {
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+        UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpiration);
 
         return Jwts.builder()
-                .subject(userDetails.getUsername())
+                .subject(principal.getUsername())
+                .claim(USER_ID_CLAIM, principal.getId())
+                .claim(ROLE_CLAIM, principal.getRole().name())
+                .claim(FULL_NAME_CLAIM, principal.getFullName())
                 .issuedAt(now)
                 .expiration(expiryDate)
                 .signWith(secretKey)
@@ -47,31 +60,44 @@ public class JwtTokenProvider {
     }
 
     /**
-     * Extracts username from JWT token.
+     * Verifies the token's signature and expiry once and builds the authenticated user
+     * from its claims. Returns null for invalid tokens, and for tokens issued without
+     * user claims; their users must log in again.
      */
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        return claims.getSubject();
+    public VerifiedToken verifyToken(String token) {
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            log.error("Invalid JWT token: {}", e.getMessage());
+            return null;
+        }
+        Long userId = claims.get(USER_ID_CLAIM, Long.class);
+        String role = claims.get(ROLE_CLAIM, String.class);
+        if (userId == null || role == null || !isRole(role)) {
+            return null;
+        }
+        UserPrincipal principal = new UserPrincipal(userId, claims.getSubject(), null,
+                claims.get(FULL_NAME_CLAIM, String.class), Role.valueOf(role), true);
+        Date expiration = claims.getExpiration();
+        return new VerifiedToken(principal, expiration != null ? expiration.toInstant() : null);
     }
 
     /**
-     * Validates the JWT token.
+     * Validates the JWT token with the same checks as {@link #verifyToken}, so a token
+     * reported valid is one that authenticates requests.
      */
     public boolean validateToken(String token) {
-        try {
-            Jwts.parser()
-                    .verifyWith(secretKey)
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            log.error("Invalid JWT token: {}", e.getMessage());
-            return false;
+        return verifyToken(token) != null;
+    }
+
+    private static boolean isRole(String role) {
+        for (Role value : Role.values()) {
+            if (value.name().equals(role)) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
@@ -80,5 +106,10 @@ public class JwtTokenProvider {
     public long getJwtExpiration() {
         return jwtExpiration;
     }
-}
 
+    /**
+     * The user authenticated by a verified token, and when the token expires (null if never).
+     */
+    public record VerifiedToken(UserPrincipal principal, Instant expiresAt) {
+    }
+}
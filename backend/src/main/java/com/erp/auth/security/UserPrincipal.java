@@ -0,0 +1,61 @@
+package com.erp.auth.security;
+
+import com.erp.auth.entity.Role;
+import com.erp.auth.entity.User;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Authenticated user.
+ * Loaded from the database at login, and rebuilt from the verified JWT claims on
+ * every later request, so authenticated requests do not query the users table.
+ */
+@Getter
+public class UserPrincipal implements UserDetails {
+
+    private final Long id;
+    private final String username;
+    private final String password;
+    private final String fullName;
+    private final Role role;
+    private final boolean enabled;
+    private final Collection<? extends GrantedAuthority> authorities;
+
+    public UserPrincipal(Long id, String username, String password, String fullName, Role role, boolean enabled) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.fullName = fullName;
+        this.role = role;
+        this.enabled = enabled;
+        this.authorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    /**
+     * Creates a principal from a user entity, for authenticating a login.
+     */
+    public static UserPrincipal fromUser(User user) {
+        return new UserPrincipal(user.getId(), user.getUsername(), user.getPassword(),
+                user.getFullName(), user.getRole(), user.getIsActive());
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+}
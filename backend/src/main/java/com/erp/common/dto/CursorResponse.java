@@ -0,0 +1,27 @@
+package com.erp.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Wrapper for cursor-paginated responses.
+ * Carries opaque cursors to the neighbouring pages instead of page numbers and totals,
+ * so a page can be served without counting all rows.
+ *
+ * @param <T> The type of content in the page
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorResponse<T> {
+
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private String prevCursor;
+}
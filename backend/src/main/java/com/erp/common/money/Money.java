@@ -0,0 +1,96 @@
+package com.erp.common.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amount of money held as a whole number of cents.
+ * Used where many amounts are added up, so the arithmetic stays on longs and every
+ * result has exactly two decimals. Amounts are converted from and to BigDecimal only
+ * where they enter and leave, at entities, JDBC rows and DTOs.
+ * Conversions and divisions round half up, away from zero, like PostgreSQL does
+ * when it stores a numeric with more decimals than the column allows.
+ * Overflowing a long throws ArithmeticException.
+ *
+ * @param cents The amount in cents
+ */
+public record Money(long cents) implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private static final int SCALE = 2;
+    private static final long BASIS_POINTS_PER_WHOLE = 10_000;
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Converts an amount, rounding it to cents; null is taken as zero.
+     */
+    public static Money of(BigDecimal amount) {
+        if (amount == null) {
+            return ZERO;
+        }
+        return ofCents(amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money times(long quantity) {
+        return ofCents(Math.multiplyExact(cents, quantity));
+    }
+
+    /**
+     * Divides the amount into equal parts, rounding to cents.
+     */
+    public Money dividedBy(long parts) {
+        return ofCents(divideHalfUp(cents, parts));
+    }
+
+    /**
+     * Takes a percentage off the amount, rounding to cents. The percentage is
+     * itself rounded to two decimals; null takes nothing off.
+     */
+    public Money lessPercent(BigDecimal percent) {
+        if (percent == null || percent.signum() == 0) {
+            return this;
+        }
+        long basisPoints = percent.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        long remaining = Math.multiplyExact(cents, BASIS_POINTS_PER_WHOLE - basisPoints);
+        return ofCents(divideHalfUp(remaining, BASIS_POINTS_PER_WHOLE));
+    }
+
+    public boolean isZero() {
+        return cents == 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= Math.abs(divisor)) {
+            quotient += Long.signum(dividend) * Long.signum(divisor);
+        }
+        return quotient;
+    }
+}
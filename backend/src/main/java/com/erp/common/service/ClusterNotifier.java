@@ -0,0 +1,40 @@
+package com.erp.common.service;
+
+/**
+ * Service interface for messages between the nodes of a cluster.
+ * A message is sent with the transaction that publishes it, and delivered to the
+ * subscribers of its channel on every other node once that transaction commits.
+ * Unless cluster.notifications.enabled is set, nothing is sent or received.
+ */
+public interface ClusterNotifier {
+
+    /**
+     * Sends a message to the other nodes when the current transaction commits, or at
+     * once outside a transaction. Messages rolled back with their transaction or
+     * savepoint are never sent.
+     *
+     * @param channel Lower case letters and underscores
+     * @param payload Under 7000 bytes
+     */
+    void publish(String channel, String payload);
+
+    /**
+     * Delivers the channel's messages from other nodes to the subscriber, on the
+     * listener thread.
+     */
+    void subscribe(String channel, Subscriber subscriber);
+
+    /**
+     * Receives the messages of a channel.
+     */
+    interface Subscriber {
+
+        void onMessage(String payload);
+
+        /**
+         * Called each time the node starts listening on the channel, after startup and
+         * after a lost connection; messages sent before that were missed.
+         */
+        void onListening();
+    }
+}
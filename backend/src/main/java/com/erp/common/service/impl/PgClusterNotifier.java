@@ -0,0 +1,178 @@
+package com.erp.common.service.impl;
+
+import com.erp.common.service.ClusterNotifier;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+/**
+ * PostgreSQL implementation of ClusterNotifier.
+ * Messages are sent with pg_notify in the publishing transaction, which PostgreSQL
+ * delivers on commit. Each node listens on one connection opened with DriverManager,
+ * outside the pool, and started with the first subscription. A payload carries the ID
+ * of the node that sent it, so a node skips its own messages.
+ */
+@Slf4j
+@Service
+public class PgClusterNotifier implements ClusterNotifier {
+
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_]+");
+    private static final int POLL_TIMEOUT_MS = 1000;
+    private static final long RECONNECT_DELAY_MS = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final boolean enabled;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private volatile boolean running = true;
+    private Thread listener;
+
+    public PgClusterNotifier(
+            JdbcTemplate jdbcTemplate,
+            DataSourceProperties dataSourceProperties,
+            @Value("${cluster.notifications.enabled:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.enabled = enabled;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread started;
+        synchronized (this) {
+            running = false;
+            started = listener;
+        }
+        if (started != null) {
+            started.join(POLL_TIMEOUT_MS * 2L);
+        }
+    }
+
+    @Override
+    public void publish(String channel, String payload) {
+        checkChannel(channel);
+        if (enabled) {
+            // Delivered to the listeners only if and when the transaction commits
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel, nodeId + "|" + payload);
+        }
+    }
+
+    @Override
+    public void subscribe(String channel, Subscriber subscriber) {
+        checkChannel(channel);
+        if (!enabled) {
+            return;
+        }
+        subscribers.computeIfAbsent(channel, key -> new CopyOnWriteArrayList<>()).add(subscriber);
+        synchronized (this) {
+            if (listener == null && running) {
+                listener = new Thread(this::listen, "cluster-notification-listener");
+                listener.setDaemon(true);
+                listener.start();
+            }
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            // A pooled connection would be held for good, taken from the pool and reported as a leak
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                Set<String> channels = new HashSet<>();
+                Set<Subscriber> listening = Collections.newSetFromMap(new IdentityHashMap<>());
+                while (running) {
+                    listenToNewSubscriptions(connection, channels, listening);
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        deliver(notification);
+                    }
+                }
+            } catch (SQLException | RuntimeException ex) {
+                if (running) {
+                    log.warn("Cluster notification listener failed, reconnecting: {}", ex.getMessage());
+                    sleepBeforeReconnect();
+                }
+            }
+        }
+    }
+
+    /**
+     * Listens on channels subscribed since the last poll, and tells their new
+     * subscribers that they are listening.
+     */
+    private void listenToNewSubscriptions(Connection connection, Set<String> channels,
+                                          Set<Subscriber> listening) throws SQLException {
+        for (Map.Entry<String, List<Subscriber>> subscription : subscribers.entrySet()) {
+            if (channels.add(subscription.getKey())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + subscription.getKey());
+                }
+                log.info("Listening for cluster notifications on {}", subscription.getKey());
+            }
+            for (Subscriber subscriber : subscription.getValue()) {
+                if (listening.add(subscriber)) {
+                    try {
+                        subscriber.onListening();
+                    } catch (RuntimeException ex) {
+                        log.error("Subscriber of {} failed to start listening", subscription.getKey(), ex);
+                    }
+                }
+            }
+        }
+    }
+
+    private void deliver(PGNotification notification) {
+        String[] message = notification.getParameter().split("\\|", 2);
+        if (message.length < 2 || message[0].equals(nodeId)) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers.getOrDefault(notification.getName(), List.of())) {
+            try {
+                subscriber.onMessage(message[1]);
+            } catch (RuntimeException ex) {
+                log.error("Subscriber of {} failed on message {}", notification.getName(), message[1], ex);
+            }
+        }
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(RECONNECT_DELAY_MS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static void checkChannel(String channel) {
+        if (!CHANNEL.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid notification channel: " + channel);
+        }
+    }
+}
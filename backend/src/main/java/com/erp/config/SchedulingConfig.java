@@ -0,0 +1,13 @@
+package com.erp.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Scheduling configuration for the application.
+ * Enables the background maintenance jobs declared with @Scheduled.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -47,8 +47,11 @@ public class SecurityConfig {
                                 "/swagger-ui.html",
                                 "/api-docs/**",
                                 "/v3/api-docs/**",
-                                "/actuator/**"
+                                "/actuator/health/**",
+                                "/actuator/info"
                         ).permitAll()
+                        // Metrics and any other exposed endpoint describe the whole system
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .headers(headers -> headers.frameOptions(frame -> frame.sameOrigin()))
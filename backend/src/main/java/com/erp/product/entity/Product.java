@@ -3,15 +3,19 @@ package com.erp.product.entity;
 import com.erp.common.entity.BaseEntity;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 
 /**
  * Product entity representing items available for sale.
  * Contains product details, pricing, and inventory information.
+ * Updates write only the changed columns, so editing a product never
+ * overwrites stock that a sale or the stock ledger changed meanwhile.
  */
 @Entity
 @Table(name = "products")
+@DynamicUpdate
 @Getter
 @Setter
 @NoArgsConstructor
@@ -19,6 +23,12 @@ import java.math.BigDecimal;
 @Builder
 public class Product extends BaseEntity {
 
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_id_generator")
+    @SequenceGenerator(name = "product_id_generator", sequenceName = "products_id_seq",
+            allocationSize = ID_ALLOCATION_SIZE)
+    private Long id;
+
     @Column(nullable = false, unique = true, length = 50)
     private String sku;
 
@@ -0,0 +1,20 @@
+package com.erp.product.repository;
+
+import java.util.SortedMap;
+
+/**
+ * Custom repository operations for Product entity.
+ * Covers stock updates that need plain JDBC batching.
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * Atomically decrements the stock of several products in one JDBC batch.
+     * Each product is only decremented if it still has enough stock, and rows
+     * are updated in ascending ID order so concurrent batches lock in the same order.
+     *
+     * @param quantities Quantities to remove, keyed by product ID
+     * @return Rows affected per product in key order; 0 means insufficient stock
+     */
+    int[] decrementStock(SortedMap<Long, Integer> quantities);
+}
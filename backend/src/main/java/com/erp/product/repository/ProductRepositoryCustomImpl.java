@@ -0,0 +1,28 @@
+package com.erp.product.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * JDBC implementation of ProductRepositoryCustom.
+ */
+@RequiredArgsConstructor
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ?, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE id = ? AND stock_quantity >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int[] decrementStock(SortedMap<Long, Integer> quantities) {
+        List<Object[]> batchArgs = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> batchArgs.add(new Object[]{quantity, productId, quantity}));
+        return jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, batchArgs);
+    }
+}
@@ -0,0 +1,27 @@
+package com.erp.product.service;
+
+import java.util.SortedMap;
+
+/**
+ * Keeps track of available stock and takes stock for sales.
+ * By default stock is decremented directly in the products table; with
+ * products.stock-ledger.enabled, counters are kept in memory and changes are
+ * journaled and written to the products table in the background.
+ */
+public interface StockLedger {
+
+    /**
+     * Takes stock for a sale in the caller's transaction, all or nothing.
+     * The stock is given back if the transaction rolls back, including a rollback
+     * to a group commit savepoint.
+     *
+     * @param quantities Quantity per product ID, in ascending ID order
+     * @return The ID of the first product without enough stock, or null if all stock was taken
+     */
+    Long decrement(SortedMap<Long, Integer> quantities);
+
+    /**
+     * Called in the transaction that sets a product's stock to a new absolute quantity.
+     */
+    void resetStock(Long productId);
+}
@@ -0,0 +1,38 @@
+package com.erp.product.service.impl;
+
+import com.erp.product.repository.ProductRepository;
+import com.erp.product.service.StockLedger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.SortedMap;
+
+/**
+ * StockLedger that decrements the products table directly with conditional updates.
+ * Products already decremented are restored by the caller's rollback.
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "products.stock-ledger", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class DatabaseStockLedger implements StockLedger {
+
+    private final ProductRepository productRepository;
+
+    @Override
+    public Long decrement(SortedMap<Long, Integer> quantities) {
+        int[] updated = productRepository.decrementStock(quantities);
+        int index = 0;
+        for (Long productId : quantities.keySet()) {
+            if (updated[index++] == 0) {
+                return productId;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void resetStock(Long productId) {
+        // The new quantity is written to the products table by the caller
+    }
+}
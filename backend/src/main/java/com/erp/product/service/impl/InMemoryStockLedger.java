@@ -0,0 +1,156 @@
+package com.erp.product.service.impl;
+
+import com.erp.product.service.StockLedger;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * StockLedger that keeps the available stock of each product in memory.
+ * Sales take stock with a compare-and-set on the product's own counter, so sales of
+ * different products never contend and hot products never wait on a row lock.
+ * Every change is appended to stock_movements in the sale's transaction, and a
+ * background flush moves the journaled deltas into products.stock_quantity.
+ * Available stock is therefore always products.stock_quantity plus the unflushed
+ * movements, which is what counters are loaded from at startup and on first use.
+ * Stock taken by a sale is given back when its transaction rolls back, or in a group
+ * commit, when the sale is rolled back to its savepoint.
+ * The counters are authoritative only while a single node sells the products.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "products.stock-ledger", name = "enabled", havingValue = "true")
+public class InMemoryStockLedger implements StockLedger {
+
+    private static final String AVAILABLE_SQL =
+            "SELECT p.id, p.stock_quantity + COALESCE(m.delta, 0) AS available FROM products p " +
+            "LEFT JOIN (SELECT product_id, SUM(quantity_delta) AS delta FROM stock_movements " +
+            "GROUP BY product_id) m ON m.product_id = p.id ";
+
+    private static final String FLUSH_SQL =
+            "WITH moved AS (DELETE FROM stock_movements RETURNING product_id, quantity_delta) " +
+            "UPDATE products p SET stock_quantity = p.stock_quantity + m.delta, updated_at = CURRENT_TIMESTAMP " +
+            "FROM (SELECT product_id, SUM(quantity_delta) AS delta FROM moved GROUP BY product_id) m " +
+            "WHERE p.id = m.product_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, AtomicLong> available = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the counters of all active products, so the first sales do not have to.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadCounters() {
+        jdbcTemplate.query(AVAILABLE_SQL + "WHERE p.is_active = true", rs -> {
+            available.putIfAbsent(rs.getLong("id"), new AtomicLong(rs.getLong("available")));
+        });
+        log.info("Stock ledger loaded {} products", available.size());
+    }
+
+    @Override
+    public Long decrement(SortedMap<Long, Integer> quantities) {
+        List<Taken> taken = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            AtomicLong counter = counter(entry.getKey());
+            if (!take(counter, entry.getValue())) {
+                giveBack(taken);
+                return entry.getKey();
+            }
+            taken.add(new Taken(counter, entry.getValue()));
+        }
+
+        try {
+            List<Object[]> movements = new ArrayList<>(quantities.size());
+            quantities.forEach((productId, quantity) -> movements.add(new Object[]{productId, -quantity}));
+            jdbcTemplate.batchUpdate("INSERT INTO stock_movements (product_id, quantity_delta) VALUES (?, ?)",
+                    movements);
+        } catch (RuntimeException ex) {
+            giveBack(taken);
+            throw ex;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    giveBack(taken);
+                }
+            }
+        });
+        return null;
+    }
+
+    /**
+     * Drops the product's unflushed movements, since the new quantity replaces them, and
+     * reloads its counter after commit. A sale still in flight for the product at that
+     * moment is not reflected in the reloaded counter.
+     */
+    @Override
+    public void resetStock(Long productId) {
+        jdbcTemplate.update("DELETE FROM stock_movements WHERE product_id = ?", productId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                available.remove(productId);
+            }
+        });
+    }
+
+    /**
+     * Applies journaled movements to the products table. Deleting the movements and
+     * updating the products happen in one statement, so each delta is applied once.
+     */
+    @Scheduled(fixedDelayString = "${products.stock-ledger.flush-interval-ms:1000}")
+    public void flush() {
+        int products = jdbcTemplate.update(FLUSH_SQL);
+        if (products > 0) {
+            log.debug("Flushed stock movements of {} products", products);
+        }
+    }
+
+    private AtomicLong counter(Long productId) {
+        AtomicLong counter = available.get(productId);
+        if (counter != null) {
+            return counter;
+        }
+        List<Long> loaded = jdbcTemplate.query(AVAILABLE_SQL + "WHERE p.id = ?",
+                (rs, rowNum) -> rs.getLong("available"), productId);
+        // Two threads may load the same product; the first counter stored wins
+        return available.computeIfAbsent(productId,
+                id -> new AtomicLong(loaded.isEmpty() ? 0 : loaded.get(0)));
+    }
+
+    private static boolean take(AtomicLong counter, int quantity) {
+        long current;
+        do {
+            current = counter.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current - quantity));
+        return true;
+    }
+
+    private static void giveBack(List<Taken> taken) {
+        taken.forEach(t -> t.counter().addAndGet(t.quantity()));
+    }
+
+    private record Taken(AtomicLong counter, int quantity) {
+    }
+}
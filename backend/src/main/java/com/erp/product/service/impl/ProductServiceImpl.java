@@ -7,6 +7,7 @@ import com.erp.product.dto.ProductResponse;
 import com.erp.product.entity.Product;
 import com.erp.product.repository.ProductRepository;
 import com.erp.product.service.ProductService;
+import com.erp.product.service.StockLedger;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -28,6 +29,7 @@ import java.util.stream.Collectors;
 public class ProductServiceImpl implements ProductService {
 
     private final ProductRepository productRepository;
+    private final StockLedger stockLedger;
 
     @Override
     public ProductResponse createProduct(ProductRequest request) {
@@ -47,7 +49,7 @@ public class ProductServiceImpl implements ProductService {
                 .imageUrl(request.getImageUrl())
                 .build();
 
-        Product savedProduct = productRepository.save(product);
+        Product savedProduct = productRepository.saveAndFlush(product);
         log.info("Product created successfully with ID: {}", savedProduct.getId());
 
         return ProductResponse.fromEntity(savedProduct);
@@ -90,7 +92,10 @@ public class ProductServiceImpl implements ProductService {
         product.setName(request.getName());
         product.setDescription(request.getDescription());
         product.setPrice(request.getPrice());
-        product.setStockQuantity(request.getStockQuantity());
+        if (!product.getStockQuantity().equals(request.getStockQuantity())) {
+            stockLedger.resetStock(id);
+            product.setStockQuantity(request.getStockQuantity());
+        }
         product.setCategory(request.getCategory());
         product.setImageUrl(request.getImageUrl());
 
@@ -1,19 +1,36 @@
 package com.erp.report.controller;
 
+import com.erp.auth.security.UserPrincipal;
 import com.erp.common.dto.ApiResponse;
+import com.erp.report.dto.ProductRanking;
+import com.erp.report.dto.ReportFormat;
+import com.erp.report.dto.ReportJobResponse;
+import com.erp.report.dto.SalesCubeQuery;
+import com.erp.report.dto.SalesCubeResult;
 import com.erp.report.dto.SalesReportSummary;
+import com.erp.report.service.ReportJobService;
 import com.erp.report.service.ReportService;
+import com.erp.report.service.SalesCube;
+import com.erp.report.service.SalesRollupService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * REST Controller for report generation.
@@ -26,38 +43,77 @@ import java.time.format.DateTimeFormatter;
 public class ReportController {
 
     private final ReportService reportService;
+    private final SalesRollupService salesRollupService;
+    private final ReportJobService reportJobService;
+    private final SalesCube salesCube;
 
     @GetMapping("/summary")
-    @Operation(summary = "Get sales summary", description = "Generate sales report summary for date range")
+    @Operation(summary = "Get sales summary", description = "Generate sales report summary for date range. "
+            + "topProducts (1 to 100) and rankProductsBy (QUANTITY or REVENUE) choose the top products listed.")
     public ResponseEntity<ApiResponse<SalesReportSummary>> getSalesReportSummary(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        SalesReportSummary summary = reportService.generateSalesReport(startDate, endDate);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "10") int topProducts,
+            @RequestParam(defaultValue = "QUANTITY") ProductRanking rankProductsBy) {
+        SalesReportSummary summary = reportService.generateSalesReport(startDate, endDate, topProducts,
+                rankProductsBy);
         return ResponseEntity.ok(ApiResponse.success(summary));
     }
 
-    @GetMapping("/download/csv")
-    @Operation(summary = "Download CSV report", description = "Download sales report as CSV file")
-    public ResponseEntity<byte[]> downloadSalesCsvReport(
+    @PostMapping("/rollups/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Rebuild sales rollups",
+            description = "Recompute the daily totals behind the summary report from the recorded sales, "
+                    + "at most one year at a time")
+    public ResponseEntity<ApiResponse<Void>> rebuildSalesRollups(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        byte[] csvContent = reportService.generateSalesCsvReport(startDate, endDate);
+        salesRollupService.rebuild(startDate, endDate);
+        return ResponseEntity.ok(ApiResponse.success("Sales rollups rebuilt", null));
+    }
+
+    @GetMapping("/download/csv")
+    @Operation(summary = "Download CSV report", description = "Download sales report as CSV file. "
+            + "Rows are streamed as they are read, gzip-compressed when the client accepts it.")
+    public ResponseEntity<StreamingResponseBody> downloadSalesCsvReport(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         String filename = String.format("sales_report_%s_%s.csv",
                 startDate.format(DateTimeFormatter.BASIC_ISO_DATE),
                 endDate.format(DateTimeFormatter.BASIC_ISO_DATE));
+        boolean gzip = acceptsGzip(acceptEncoding);
 
-        return ResponseEntity.ok()
+        StreamingResponseBody body = output -> {
+            if (gzip) {
+                // syncFlush, so the header row leaves at once instead of waiting for a full deflate block
+                try (GZIPOutputStream compressed = new GZIPOutputStream(output, true)) {
+                    reportService.writeSalesCsvReport(startDate, endDate, compressed);
+                }
+            } else {
+                reportService.writeSalesCsvReport(startDate, endDate, output);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
-                .contentType(MediaType.parseMediaType("text/csv"))
-                .body(csvContent);
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.parseMediaType("text/csv"));
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
     @GetMapping("/download/pdf")
-    @Operation(summary = "Download PDF report", description = "Download sales report as PDF file")
-    public ResponseEntity<byte[]> downloadSalesPdfReport(
+    @Operation(summary = "Download PDF report", description = "Download sales report as PDF file. "
+            + "Pages are streamed as they are laid out; includeSales appends a table of every sale.")
+    public ResponseEntity<StreamingResponseBody> downloadSalesPdfReport(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        byte[] pdfContent = reportService.generateSalesPdfReport(startDate, endDate);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "false") boolean includeSales) {
+        StreamingResponseBody body = output ->
+                reportService.writeSalesPdfReport(startDate, endDate, includeSales, output);
         String filename = String.format("sales_report_%s_%s.pdf",
                 startDate.format(DateTimeFormatter.BASIC_ISO_DATE),
                 endDate.format(DateTimeFormatter.BASIC_ISO_DATE));
@@ -65,8 +121,104 @@ public class ReportController {
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
                 .contentType(MediaType.APPLICATION_PDF)
-                .body(pdfContent);
+                .body(body);
     }
 
-}
+    @PostMapping("/jobs")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    @Operation(summary = "Submit report job", description = "Generate a CSV or PDF sales report in the background. "
+            + "An identical report that is still queued or running is returned instead of a new job.")
+    public ResponseEntity<ApiResponse<ReportJobResponse>> submitReportJob(
+            @RequestParam ReportFormat format,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "false") boolean includeSales,
+            @AuthenticationPrincipal UserPrincipal user) {
+        ReportJobResponse job = reportJobService.submit(format, startDate, endDate, includeSales, user.getUsername());
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Report job submitted", job));
+    }
 
+    @GetMapping("/jobs/{id}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    @Operation(summary = "Get report job", description = "Get the status of a background report job")
+    public ResponseEntity<ApiResponse<ReportJobResponse>> getReportJob(@PathVariable String id) {
+        return ResponseEntity.ok(ApiResponse.success(reportJobService.getJob(id)));
+    }
+
+    @GetMapping("/jobs/{id}/download")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    @Operation(summary = "Download report job", description = "Download the file of a completed report job")
+    public ResponseEntity<StreamingResponseBody> downloadReportJob(@PathVariable String id) {
+        ReportJobResponse job = reportJobService.getJob(id);
+        InputStream artifact = reportJobService.openArtifact(id);
+        StreamingResponseBody body = output -> {
+            try (artifact) {
+                artifact.transferTo(output);
+            }
+        };
+        String filename = String.format("sales_report_%s_%s.%s",
+                job.getStartDate().format(DateTimeFormatter.BASIC_ISO_DATE),
+                job.getEndDate().format(DateTimeFormatter.BASIC_ISO_DATE),
+                job.getFormat().getExtension());
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
+                .contentType(MediaType.parseMediaType(job.getFormat().getContentType()))
+                .body(body);
+    }
+
+    @PostMapping("/cube/query")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    @Operation(summary = "Query sales cube", description = "Group and total sale items held in memory "
+            + "by product, category, cashier, payment method, hour or day. Needs reports.cube.enabled.")
+    public ResponseEntity<ApiResponse<SalesCubeResult>> querySalesCube(@Valid @RequestBody SalesCubeQuery query) {
+        return ResponseEntity.ok(ApiResponse.success(salesCube.query(query)));
+    }
+
+    @PostMapping("/cube/reload")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Reload sales cube",
+            description = "Load the sales cube again from the database in the background")
+    public ResponseEntity<ApiResponse<Void>> reloadSalesCube() {
+        salesCube.reload();
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Sales cube reload started", null));
+    }
+
+    /**
+     * Tells whether an Accept-Encoding header accepts gzip: listed by name, or through
+     * "*" when not listed, with a quality above zero. Unreadable qualities refuse it.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().toLowerCase(Locale.ROOT);
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException ex) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipQuality = quality;
+            } else if (coding.equals("*")) {
+                anyQuality = quality;
+            }
+        }
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return anyQuality != null && anyQuality > 0;
+    }
+}
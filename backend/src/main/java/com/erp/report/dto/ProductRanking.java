@@ -0,0 +1,18 @@
+package com.erp.report.dto;
+
+/**
+ * Order of the top products in the sales report.
+ * Ties are broken by product ID.
+ */
+public enum ProductRanking {
+
+    /**
+     * Most units sold first.
+     */
+    QUANTITY,
+
+    /**
+     * Highest revenue first.
+     */
+    REVENUE
+}
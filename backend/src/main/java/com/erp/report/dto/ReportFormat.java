@@ -0,0 +1,18 @@
+package com.erp.report.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * File formats a sales report can be produced in.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ReportFormat {
+
+    CSV("csv", "text/csv"),
+    PDF("pdf", "application/pdf");
+
+    private final String extension;
+    private final String contentType;
+}
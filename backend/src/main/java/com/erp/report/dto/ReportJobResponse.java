@@ -0,0 +1,34 @@
+package com.erp.report.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * DTO for the state of an asynchronous report job.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReportJobResponse {
+
+    private String id;
+    private ReportFormat format;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private boolean includeSales;
+    private ReportJobStatus status;
+    private String submittedBy;
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    private Long sizeBytes;
+    private String error;
+}
@@ -0,0 +1,32 @@
+package com.erp.report.dto;
+
+/**
+ * Lifecycle of an asynchronous report job.
+ */
+public enum ReportJobStatus {
+
+    /**
+     * Waiting for a report worker.
+     */
+    QUEUED,
+
+    /**
+     * Being written by a report worker.
+     */
+    RUNNING,
+
+    /**
+     * Written to disk and ready for download.
+     */
+    COMPLETED,
+
+    /**
+     * The report could not be generated; see the job error.
+     */
+    FAILED,
+
+    /**
+     * The file was evicted to make room for newer reports; submit the job again.
+     */
+    EXPIRED
+}
@@ -0,0 +1,37 @@
+package com.erp.report.dto;
+
+/**
+ * Dimensions the sales cube can group and filter sale items by.
+ */
+public enum SalesCubeDimension {
+
+    /**
+     * Product ID.
+     */
+    PRODUCT,
+
+    /**
+     * Product category; null for products without one.
+     */
+    CATEGORY,
+
+    /**
+     * User ID of the cashier who made the sale.
+     */
+    CASHIER,
+
+    /**
+     * Payment method of the sale.
+     */
+    PAYMENT_METHOD,
+
+    /**
+     * Hour of day of the sale, 0 to 23.
+     */
+    HOUR,
+
+    /**
+     * Day of the sale. Grouping only; the query's date range selects days.
+     */
+    DAY
+}
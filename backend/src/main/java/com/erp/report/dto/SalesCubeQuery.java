@@ -0,0 +1,47 @@
+package com.erp.report.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO for an ad-hoc query of the sales cube.
+ * Items of completed sales in the date range that pass every filter are grouped by
+ * the groupBy dimensions, and the groups with the highest revenue are returned.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesCubeQuery {
+
+    @NotNull(message = "Start date is required")
+    private LocalDate startDate;
+
+    @NotNull(message = "End date is required")
+    private LocalDate endDate;
+
+    /**
+     * Dimensions to group by, in order; none gives a single total.
+     */
+    private List<SalesCubeDimension> groupBy;
+
+    /**
+     * Accepted values per dimension: product and cashier IDs, category names, payment
+     * method names, or hours.
+     */
+    private Map<SalesCubeDimension, List<String>> filters;
+
+    @Min(value = 1, message = "Limit must be at least 1")
+    @Max(value = 10000, message = "Limit cannot exceed 10000")
+    @Builder.Default
+    private int limit = 100;
+}
@@ -0,0 +1,40 @@
+package com.erp.report.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO for the answer to a sales cube query.
+ * Revenue is the sum of item line totals, before sale level tax and discount.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesCubeResult {
+
+    private List<Row> rows;
+    private long totalGroups;
+    private long linesInCube;
+    private long durationMs;
+
+    /**
+     * One group, by descending revenue.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Row {
+        private Map<SalesCubeDimension, Object> dimensions;
+        private long lines;
+        private long quantity;
+        private BigDecimal revenue;
+    }
+}
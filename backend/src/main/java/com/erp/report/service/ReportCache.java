@@ -0,0 +1,42 @@
+package com.erp.report.service;
+
+import java.time.LocalDate;
+import java.util.function.Supplier;
+
+/**
+ * Cache of report results for closed periods, ranges that end before today.
+ * Sales of a past day only change when one is cancelled, imported or the day's
+ * rollups are rebuilt, so a result stays cached until one of those invalidates a
+ * day in its range, it is evicted for space, or its TTL runs out.
+ */
+public interface ReportCache {
+
+    /**
+     * Reports whose results are cached.
+     */
+    enum ReportType {
+        SALES_SUMMARY
+    }
+
+    /**
+     * Returns the cached result for a closed period, or loads and caches it.
+     * Concurrent callers missing the same key wait for a single load.
+     *
+     * @param type      The report
+     * @param startDate First day of the period
+     * @param endDate   Last day of the period, before today
+     * @param loader    Loads the result; exceptions are passed on to every waiting caller and nothing is cached
+     */
+    <T> T get(ReportType type, LocalDate startDate, LocalDate endDate, Supplier<T> loader);
+
+    /**
+     * Evicts every result whose period contains the day, right away and again after
+     * the current transaction commits, so a result loaded before the commit is not kept.
+     */
+    void invalidate(LocalDate day);
+
+    /**
+     * Evicts every result, right away and again after the current transaction commits.
+     */
+    void invalidateAll();
+}
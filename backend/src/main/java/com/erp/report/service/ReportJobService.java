@@ -0,0 +1,39 @@
+package com.erp.report.service;
+
+import com.erp.report.dto.ReportFormat;
+import com.erp.report.dto.ReportJobResponse;
+
+import java.io.InputStream;
+import java.time.LocalDate;
+
+/**
+ * Service interface for sales reports generated in the background.
+ * Jobs run on a bounded pool of report workers and leave their file on local disk
+ * for download, so large reports do not tie up request threads.
+ */
+public interface ReportJobService {
+
+    /**
+     * Queues a sales report. If an identical report is already queued or running,
+     * that job is returned instead of starting another one.
+     *
+     * @param format       File format of the report
+     * @param startDate    Start date of the report period
+     * @param endDate      End date of the report period
+     * @param includeSales Whether a PDF report lists every sale in the period
+     * @param submittedBy  Username of the requester
+     * @return The new or already pending job
+     */
+    ReportJobResponse submit(ReportFormat format, LocalDate startDate, LocalDate endDate,
+                             boolean includeSales, String submittedBy);
+
+    /**
+     * Gets the current state of a job.
+     */
+    ReportJobResponse getJob(String id);
+
+    /**
+     * Opens the file of a completed job for reading. The caller closes the stream.
+     */
+    InputStream openArtifact(String id);
+}
@@ -1,7 +1,9 @@
 package com.erp.report.service;
 
+import com.erp.report.dto.ProductRanking;
 import com.erp.report.dto.SalesReportSummary;
 
+import java.io.OutputStream;
 import java.time.LocalDate;
 
 /**
@@ -20,21 +22,37 @@ public interface ReportService {
     SalesReportSummary generateSalesReport(LocalDate startDate, LocalDate endDate);
 
     /**
-     * Generates a CSV report for sales within the date range.
+     * Generates a sales report summary for the given date range, with a chosen
+     * number of top products.
      *
-     * @param startDate Start date of the report period
-     * @param endDate   End date of the report period
-     * @return CSV content as byte array
+     * @param startDate   Start date of the report period
+     * @param endDate     End date of the report period
+     * @param topProducts Number of top products to list, from 1 to 100
+     * @param ranking     Whether top products are ranked by quantity or by revenue
+     * @return Sales report summary
      */
-    byte[] generateSalesCsvReport(LocalDate startDate, LocalDate endDate);
+    SalesReportSummary generateSalesReport(LocalDate startDate, LocalDate endDate,
+                                           int topProducts, ProductRanking ranking);
 
     /**
-     * Generates a PDF report for sales within the date range.
+     * Writes a CSV report for sales within the date range as the rows are read,
+     * so memory use does not depend on the number of sales.
      *
      * @param startDate Start date of the report period
      * @param endDate   End date of the report period
-     * @return PDF content as byte array
+     * @param output    The stream the CSV is written to; left open
+     */
+    void writeSalesCsvReport(LocalDate startDate, LocalDate endDate, OutputStream output);
+
+    /**
+     * Writes a PDF report for sales within the date range to the given stream.
+     * Pages are written as they are laid out; the stream is not closed.
+     *
+     * @param startDate    Start date of the report period
+     * @param endDate      End date of the report period
+     * @param includeSales Whether to append a table listing every sale in the period
+     * @param output       Stream receiving the PDF content
      */
-    byte[] generateSalesPdfReport(LocalDate startDate, LocalDate endDate);
+    void writeSalesPdfReport(LocalDate startDate, LocalDate endDate, boolean includeSales, OutputStream output);
 }
 
@@ -0,0 +1,47 @@
+package com.erp.report.service;
+
+import com.erp.report.dto.SalesCubeQuery;
+import com.erp.report.dto.SalesCubeResult;
+import com.erp.sales.entity.Sale;
+
+import java.util.List;
+
+/**
+ * Service interface for ad-hoc analysis of sale items.
+ * With reports.cube.enabled, the items of completed sales are held in memory as
+ * columns and kept up to date as sales are created and cancelled, so queries that
+ * group revenue by product, category, cashier, payment method, hour or day do not
+ * scan the sales tables. Otherwise queries are refused, and changes are only sent
+ * to the other nodes, for those that run the cube.
+ */
+public interface SalesCube {
+
+    /**
+     * Groups and totals the sale items matching the query.
+     */
+    SalesCubeResult query(SalesCubeQuery query);
+
+    /**
+     * Called in the transaction that creates a sale; the sale is added once it commits.
+     */
+    void recordSale(Sale sale);
+
+    /**
+     * Called in the transaction that cancels a completed sale; the sale is removed once it commits.
+     */
+    void recordCancellation(Sale sale);
+
+    /**
+     * Called in the transaction that writes sales directly to the database; the sales
+     * are read now and added once it commits.
+     *
+     * @param saleIds IDs of the new sales
+     */
+    void addSales(List<Long> saleIds);
+
+    /**
+     * Loads the cube again from the database in the background. The current data
+     * keeps answering queries until the new load is complete.
+     */
+    void reload();
+}
@@ -0,0 +1,42 @@
+package com.erp.report.service;
+
+import com.erp.sales.entity.Sale;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Service interface for the daily sales rollups behind the sales report.
+ * Rollups hold the totals of completed sales per day and payment method and per
+ * day and product. They are updated in the transaction that changes a sale.
+ */
+public interface SalesRollupService {
+
+    /**
+     * Adds a newly created sale to the rollups, in the caller's transaction.
+     * Does nothing unless the sale is completed.
+     */
+    void recordSale(Sale sale);
+
+    /**
+     * Removes a sale that was completed and is now cancelled, in the caller's transaction.
+     */
+    void recordCancellation(Sale sale);
+
+    /**
+     * Adds sales written directly to the database to the rollups, in the caller's transaction.
+     * Holds each of their days against a concurrent rebuild until the caller commits.
+     *
+     * @param saleIds IDs of the new sales
+     */
+    void addSales(List<Long> saleIds);
+
+    /**
+     * Recomputes the rollups of each day in the range from the sales and sale items,
+     * one day per transaction. The range is limited to reports.rollup.max-rebuild-days.
+     *
+     * @param startDate First day to rebuild
+     * @param endDate   Last day to rebuild, not before the first
+     */
+    void rebuild(LocalDate startDate, LocalDate endDate);
+}
@@ -0,0 +1,52 @@
+package com.erp.report.service.impl;
+
+import com.erp.common.exception.ServiceUnavailableException;
+import com.erp.common.service.ClusterNotifier;
+import com.erp.report.dto.SalesCubeQuery;
+import com.erp.report.dto.SalesCubeResult;
+import com.erp.report.service.SalesCube;
+import com.erp.sales.entity.Sale;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * SalesCube used when the cube is not enabled; holds nothing and answers no queries.
+ * Changes are still sent to the other nodes, for those that run the cube.
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "reports.cube", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class DisabledSalesCube implements SalesCube {
+
+    private final ClusterNotifier clusterNotifier;
+
+    @Override
+    public SalesCubeResult query(SalesCubeQuery query) {
+        throw new ServiceUnavailableException("Sales cube is not enabled");
+    }
+
+    @Override
+    public void recordSale(Sale sale) {
+        if (sale.getStatus() == Sale.SaleStatus.COMPLETED) {
+            SalesCubeMessages.publishSales(clusterNotifier, List.of(sale.getId()));
+        }
+    }
+
+    @Override
+    public void recordCancellation(Sale sale) {
+        SalesCubeMessages.publishCancellation(clusterNotifier, sale.getId(), sale.getSaleDate().toLocalDate());
+    }
+
+    @Override
+    public void addSales(List<Long> saleIds) {
+        SalesCubeMessages.publishSales(clusterNotifier, saleIds);
+    }
+
+    @Override
+    public void reload() {
+        throw new ServiceUnavailableException("Sales cube is not enabled");
+    }
+}
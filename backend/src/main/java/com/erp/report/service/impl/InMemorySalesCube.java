@@ -0,0 +1,424 @@
+package com.erp.report.service.impl;
+
+import com.erp.common.exception.BadRequestException;
+import com.erp.common.exception.ServiceUnavailableException;
+import com.erp.common.money.Money;
+import com.erp.common.service.ClusterNotifier;
+import com.erp.report.dto.SalesCubeDimension;
+import com.erp.report.dto.SalesCubeQuery;
+import com.erp.report.dto.SalesCubeResult;
+import com.erp.report.service.SalesCube;
+import com.erp.sales.entity.Sale;
+import com.erp.sales.entity.SaleItem;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SalesCube that holds the items of completed sales in a SalesCubeStore.
+ * The store is loaded at startup by a background thread streaming all items from
+ * the database; queries are refused until it is ready. Sales created and cancelled
+ * meanwhile are applied to the new store once it is loaded, skipping sales the load
+ * already read. Changes are applied after their transaction commits; under group
+ * commit, the changes of a sale rolled back to its savepoint are discarded with it.
+ * Changes made on other nodes arrive through the ClusterNotifier, and the cube is
+ * reloaded whenever it starts listening, since it may have missed some. Without
+ * cluster notifications it only catches up with other nodes on the scheduled reload.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "reports.cube", name = "enabled", havingValue = "true")
+public class InMemorySalesCube implements SalesCube {
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private static final String ITEMS_SQL =
+            "SELECT s.id AS sale_id, s.user_id, s.payment_method, s.sale_date, si.product_id, p.category, " +
+            "si.quantity, CAST(si.line_total * 100 AS BIGINT) AS line_cents " +
+            "FROM sale_items si JOIN sales s ON s.id = si.sale_id JOIN products p ON p.id = si.product_id " +
+            "WHERE s.status = 'COMPLETED' %s ORDER BY s.sale_date, s.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final ClusterNotifier clusterNotifier;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Timer queryTimer;
+
+    private volatile SalesCubeStore current;
+    // Changes committed while a load runs; null when no load is running. Guarded by this.
+    private List<Change> pendingChanges;
+
+    public InMemorySalesCube(
+            JdbcTemplate jdbcTemplate,
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            ClusterNotifier clusterNotifier,
+            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clusterNotifier = clusterNotifier;
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        // PostgreSQL only streams with a fetch size inside a transaction
+        this.streamingJdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        this.queryTimer = Timer.builder("reports.cube.query")
+                .description("Time taken by sales cube queries")
+                .register(meterRegistry);
+        Gauge.builder("reports.cube.lines", this, InMemorySalesCube::lines)
+                .description("Sale items held in the sales cube")
+                .register(meterRegistry);
+
+        clusterNotifier.subscribe(SalesCubeMessages.CHANNEL, new ClusterNotifier.Subscriber() {
+            @Override
+            public void onMessage(String payload) {
+                SalesCubeMessages.dispatch(payload,
+                        saleIds -> apply(readSales(saleIds)),
+                        (saleId, day) -> apply(List.of(Change.cancellation(saleId, day.atStartOfDay()))));
+            }
+
+            @Override
+            public void onListening() {
+                // Sales made on other nodes while this one was not listening were missed
+                reload();
+            }
+        });
+    }
+
+    private double lines() {
+        SalesCubeStore store = current;
+        return store != null ? store.lines() : 0;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAtStartup() {
+        reload();
+    }
+
+    /**
+     * Catches up with changes this node did not see; queries keep using the old store
+     * until the new one is loaded.
+     */
+    @Scheduled(cron = "${reports.cube.reload-cron:0 45 3 * * *}")
+    public void reloadOnSchedule() {
+        reload();
+    }
+
+    @Override
+    public synchronized void reload() {
+        if (pendingChanges != null) {
+            log.info("Sales cube is already loading");
+            return;
+        }
+        pendingChanges = new ArrayList<>();
+        Thread loader = new Thread(this::load, "sales-cube-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @Override
+    public SalesCubeResult query(SalesCubeQuery query) {
+        SalesCubeStore store = current;
+        if (store == null) {
+            throw new ServiceUnavailableException("Sales cube is loading, please retry later");
+        }
+        if (query.getEndDate().isBefore(query.getStartDate())) {
+            throw new BadRequestException("End date must not be before start date");
+        }
+
+        long started = System.nanoTime();
+        int fromDay = (int) query.getStartDate().toEpochDay();
+        int toDay = (int) query.getEndDate().toEpochDay();
+        SalesCubeDimension[] groupBy = query.getGroupBy() == null ? new SalesCubeDimension[0]
+                : query.getGroupBy().stream().distinct().toArray(SalesCubeDimension[]::new);
+
+        int[] radices = new int[groupBy.length];
+        try {
+            long groups = 1;
+            for (int d = 0; d < groupBy.length; d++) {
+                radices[d] = groupBy[d] == SalesCubeDimension.DAY ? toDay - fromDay + 1
+                        : Math.max(1, store.cardinality(groupBy[d]));
+                groups = Math.multiplyExact(groups, radices[d]);
+            }
+        } catch (ArithmeticException ex) {
+            throw new BadRequestException("Too many possible groups; group by fewer dimensions or days");
+        }
+
+        boolean[][] filters = new boolean[SalesCubeDimension.values().length][];
+        if (query.getFilters() != null) {
+            query.getFilters().forEach((dimension, values) ->
+                    filters[dimension.ordinal()] = allowedCodes(store, dimension, values));
+        }
+
+        SalesCubeStore.GroupTotals totals = store.scan(
+                new SalesCubeStore.Scan(fromDay, toDay, groupBy, radices, filters));
+        List<SalesCubeResult.Row> rows = topRows(store, totals, groupBy, radices, fromDay, query.getLimit());
+
+        long elapsed = System.nanoTime() - started;
+        queryTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        return SalesCubeResult.builder()
+                .rows(rows)
+                .totalGroups(totals.size())
+                .linesInCube(store.lines())
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(elapsed))
+                .build();
+    }
+
+    @Override
+    public void recordSale(Sale sale) {
+        if (sale.getStatus() != Sale.SaleStatus.COMPLETED) {
+            return;
+        }
+        List<Item> items = new ArrayList<>(sale.getItems().size());
+        for (SaleItem item : sale.getItems()) {
+            items.add(new Item(item.getProduct().getId(), item.getProduct().getCategory(),
+                    item.getQuantity(), Money.of(item.getLineTotal()).cents()));
+        }
+        applyAfterCommit(List.of(new Change(sale.getId(), sale.getUser().getId(),
+                sale.getPaymentMethod().ordinal(), sale.getSaleDate(), items)));
+        SalesCubeMessages.publishSales(clusterNotifier, List.of(sale.getId()));
+    }
+
+    @Override
+    public void recordCancellation(Sale sale) {
+        applyAfterCommit(List.of(Change.cancellation(sale.getId(), sale.getSaleDate())));
+        SalesCubeMessages.publishCancellation(clusterNotifier, sale.getId(), sale.getSaleDate().toLocalDate());
+    }
+
+    @Override
+    public void addSales(List<Long> saleIds) {
+        applyAfterCommit(readSales(saleIds));
+        SalesCubeMessages.publishSales(clusterNotifier, saleIds);
+    }
+
+    /**
+     * Reads the items of the completed sales among the given ones.
+     */
+    private List<Change> readSales(List<Long> saleIds) {
+        List<Change> changes = new ArrayList<>();
+        long[] saleId = {0};
+        Change[] sale = {null};
+        jdbcTemplate.query(String.format(ITEMS_SQL, "AND s.id = ANY(?)"), rs -> {
+            if (sale[0] == null || rs.getLong("sale_id") != saleId[0]) {
+                saleId[0] = rs.getLong("sale_id");
+                sale[0] = new Change(saleId[0], rs.getLong("user_id"),
+                        Sale.PaymentMethod.valueOf(rs.getString("payment_method")).ordinal(),
+                        rs.getObject("sale_date", LocalDateTime.class), new ArrayList<>());
+                changes.add(sale[0]);
+            }
+            sale[0].items().add(new Item(rs.getLong("product_id"), rs.getString("category"),
+                    rs.getInt("quantity"), rs.getLong("line_cents")));
+        }, (Object) saleIds.toArray(Long[]::new));
+        return changes;
+    }
+
+    private void load() {
+        long started = System.nanoTime();
+        SalesCubeStore store = new SalesCubeStore();
+        try {
+            RowCallbackHandler append = rs -> appendRow(store, rs);
+            readOnlyTransaction.executeWithoutResult(status ->
+                    streamingJdbcTemplate.query(String.format(ITEMS_SQL, ""), append));
+            publish(store);
+            log.info("Sales cube loaded {} sale items in {} ms", store.lines(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (RuntimeException ex) {
+            log.error("Sales cube load failed", ex);
+        } finally {
+            // Also after an Error, or later reloads would be refused and changes queue up for good
+            synchronized (this) {
+                pendingChanges = null;
+            }
+        }
+    }
+
+    /**
+     * Applies the changes committed during the load to the new store and starts serving it.
+     */
+    private synchronized void publish(SalesCubeStore store) {
+        // Sales committed before the load read them are already in the store
+        Set<Long> loaded = new HashSet<>();
+        for (Change change : pendingChanges) {
+            if (!change.isCancellation() && store.containsSaleSince(change.saleId(), change.day())) {
+                loaded.add(change.saleId());
+            }
+        }
+        for (Change change : pendingChanges) {
+            if (change.isCancellation() || !loaded.contains(change.saleId())) {
+                change.applyTo(store);
+            }
+        }
+        current = store;
+    }
+
+    private static void appendRow(SalesCubeStore store, ResultSet rs) throws SQLException {
+        store.append(rs.getLong("sale_id"), rs.getLong("product_id"), rs.getString("category"),
+                rs.getLong("user_id"), Sale.PaymentMethod.valueOf(rs.getString("payment_method")).ordinal(),
+                rs.getObject("sale_date", LocalDateTime.class), rs.getInt("quantity"), rs.getLong("line_cents"));
+    }
+
+    private void applyAfterCommit(List<Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(changes);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(changes);
+            }
+        });
+    }
+
+    private synchronized void apply(List<Change> changes) {
+        for (Change change : changes) {
+            if (current != null) {
+                change.applyTo(current);
+            }
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        }
+    }
+
+    private static boolean[] allowedCodes(SalesCubeStore store, SalesCubeDimension dimension, List<String> values) {
+        if (dimension == SalesCubeDimension.DAY) {
+            throw new BadRequestException("Days are selected with the start and end date, not a filter");
+        }
+        boolean[] allowed = new boolean[store.cardinality(dimension)];
+        for (String value : values) {
+            int code;
+            try {
+                code = switch (dimension) {
+                    case PRODUCT -> store.productCode(Long.parseLong(value));
+                    case CATEGORY -> store.categoryCode(value);
+                    case CASHIER -> store.cashierCode(Long.parseLong(value));
+                    case PAYMENT_METHOD -> Sale.PaymentMethod.valueOf(value).ordinal();
+                    case HOUR -> Integer.parseInt(value);
+                    case DAY -> -1;
+                };
+            } catch (IllegalArgumentException ex) {
+                throw new BadRequestException("Invalid " + dimension + " filter value: " + value);
+            }
+            if (code >= 0 && code < allowed.length) {
+                allowed[code] = true;
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * Picks the groups with the highest revenue with a heap of limit entries, and
+     * decodes their keys back to dimension values.
+     */
+    private static List<SalesCubeResult.Row> topRows(SalesCubeStore store, SalesCubeStore.GroupTotals totals,
+                                                     SalesCubeDimension[] groupBy, int[] radices,
+                                                     int fromDay, int limit) {
+        // Worst group at the root: least revenue, then greatest key
+        Comparator<Integer> worstFirst = Comparator.<Integer>comparingLong(totals::cents)
+                .thenComparing(Comparator.<Integer>comparingLong(totals::key).reversed());
+        PriorityQueue<Integer> top = new PriorityQueue<>(Math.min(limit, totals.size()) + 1, worstFirst);
+        for (int i = 0; i < totals.size(); i++) {
+            top.add(i);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        SalesCubeResult.Row[] rows = new SalesCubeResult.Row[top.size()];
+        for (int r = rows.length - 1; r >= 0; r--) {
+            int index = top.poll();
+            Object[] values = new Object[groupBy.length];
+            long key = totals.key(index);
+            for (int d = groupBy.length - 1; d >= 0; d--) {
+                values[d] = decode(store, groupBy[d], (int) (key % radices[d]), fromDay);
+                key /= radices[d];
+            }
+            Map<SalesCubeDimension, Object> dimensions = new LinkedHashMap<>();
+            for (int d = 0; d < groupBy.length; d++) {
+                dimensions.put(groupBy[d], values[d]);
+            }
+            rows[r] = SalesCubeResult.Row.builder()
+                    .dimensions(dimensions)
+                    .lines(totals.lines(index))
+                    .quantity(totals.quantity(index))
+                    .revenue(Money.ofCents(totals.cents(index)).toBigDecimal())
+                    .build();
+        }
+        return Arrays.asList(rows);
+    }
+
+    private static Object decode(SalesCubeStore store, SalesCubeDimension dimension, int code, int fromDay) {
+        return switch (dimension) {
+            case PRODUCT -> store.productId(code);
+            case CATEGORY -> store.category(code);
+            case CASHIER -> store.cashierId(code);
+            case PAYMENT_METHOD -> Sale.PaymentMethod.values()[code].name();
+            case HOUR -> code;
+            case DAY -> LocalDate.ofEpochDay(fromDay + code);
+        };
+    }
+
+    private record Item(long productId, String category, int quantity, long cents) {
+    }
+
+    /**
+     * A committed sale to add, or without items, a sale to cancel.
+     */
+    private record Change(long saleId, long cashierId, int paymentMethod, LocalDateTime saleDate, List<Item> items) {
+
+        private static Change cancellation(long saleId, LocalDateTime saleDate) {
+            return new Change(saleId, 0, 0, saleDate, null);
+        }
+
+        private boolean isCancellation() {
+            return items == null;
+        }
+
+        private int day() {
+            return (int) saleDate.toLocalDate().toEpochDay();
+        }
+
+        private void applyTo(SalesCubeStore store) {
+            if (isCancellation()) {
+                store.cancel(saleId, day());
+                return;
+            }
+            for (Item item : items) {
+                store.append(saleId, item.productId(), item.category(), cashierId, paymentMethod, saleDate,
+                        item.quantity(), item.cents());
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.erp.report.service.impl;
+
+import com.erp.common.money.Money;
+import com.erp.report.dto.ProductRanking;
+import com.erp.report.dto.SalesReportSummary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Quantity and revenue sold per product, for picking the top products of a report.
+ * Totals are kept in parallel primitive arrays, indexed through an open addressing
+ * table keyed by product ID, so a catalog of tens of thousands of products costs a
+ * few arrays rather than an object per product. The top N are then selected with a
+ * heap of N entries instead of sorting every product.
+ */
+final class ProductTotals {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] productIds;
+    private String[] names;
+    private long[] quantities;
+    private long[] revenueCents;
+    private int size;
+    // Index into the arrays above plus one; zero marks a free slot
+    private int[] slots;
+
+    ProductTotals() {
+        this(INITIAL_CAPACITY);
+    }
+
+    private ProductTotals(int capacity) {
+        productIds = new long[capacity];
+        names = new String[capacity];
+        quantities = new long[capacity];
+        revenueCents = new long[capacity];
+        slots = new int[capacity * 2];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds sales of a product. Of differing names, the greatest is kept, as
+     * MAX(product_name COLLATE "C") does.
+     */
+    void add(long productId, String name, long quantity, long cents) {
+        int slot = findSlot(productId);
+        int index = slots[slot] - 1;
+        if (index < 0) {
+            if (size == productIds.length) {
+                grow();
+                slot = findSlot(productId);
+            }
+            index = size++;
+            productIds[index] = productId;
+            names[index] = name;
+            slots[slot] = index + 1;
+        } else if (name.compareTo(names[index]) > 0) {
+            names[index] = name;
+        }
+        quantities[index] += quantity;
+        revenueCents[index] += cents;
+    }
+
+    void addAll(ProductTotals other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.productIds[i], other.names[i], other.quantities[i], other.revenueCents[i]);
+        }
+    }
+
+    ProductTotals copy() {
+        ProductTotals copy = new ProductTotals(productIds.length);
+        copy.productIds = productIds.clone();
+        copy.names = names.clone();
+        copy.quantities = quantities.clone();
+        copy.revenueCents = revenueCents.clone();
+        copy.slots = slots.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Returns the first limit products in ranking order.
+     */
+    List<SalesReportSummary.TopProductSummary> top(int limit, ProductRanking ranking) {
+        long[] values = ranking == ProductRanking.REVENUE ? revenueCents : quantities;
+
+        // Heap of the best products seen so far, with the worst of them at the root
+        int[] heap = new int[Math.min(limit, size)];
+        int heapSize = 0;
+        for (int i = 0; i < size; i++) {
+            if (heapSize < heap.length) {
+                heap[heapSize] = i;
+                siftUp(heap, heapSize++, values);
+            } else if (heapSize > 0 && ranksBefore(i, heap[0], values)) {
+                heap[0] = i;
+                siftDown(heap, heapSize, values);
+            }
+        }
+
+        // Taking the worst off the root fills the result from the back
+        int[] ranked = new int[heapSize];
+        for (int last = heapSize - 1; last >= 0; last--) {
+            ranked[last] = heap[0];
+            heap[0] = heap[last];
+            siftDown(heap, last, values);
+        }
+
+        List<SalesReportSummary.TopProductSummary> top = new ArrayList<>(ranked.length);
+        for (int index : ranked) {
+            top.add(SalesReportSummary.TopProductSummary.builder()
+                    .productId(productIds[index])
+                    .productName(names[index])
+                    .quantitySold(quantities[index])
+                    .revenue(Money.ofCents(revenueCents[index]).toBigDecimal())
+                    .build());
+        }
+        return top;
+    }
+
+    private boolean ranksBefore(int a, int b, long[] values) {
+        if (values[a] != values[b]) {
+            return values[a] > values[b];
+        }
+        return productIds[a] < productIds[b];
+    }
+
+    private void siftUp(int[] heap, int position, long[] values) {
+        int entry = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!ranksBefore(heap[parent], entry, values)) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = entry;
+    }
+
+    private void siftDown(int[] heap, int heapSize, long[] values) {
+        if (heapSize == 0) {
+            return;
+        }
+        int position = 0;
+        int entry = heap[0];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && ranksBefore(heap[child], heap[child + 1], values)) {
+                child++;
+            }
+            if (!ranksBefore(entry, heap[child], values)) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = entry;
+    }
+
+    private int findSlot(long productId) {
+        int mask = slots.length - 1;
+        int slot = Long.hashCode(productId * 0x9E3779B97F4A7C15L) & mask;
+        while (slots[slot] != 0 && productIds[slots[slot] - 1] != productId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int capacity = productIds.length * 2;
+        productIds = Arrays.copyOf(productIds, capacity);
+        names = Arrays.copyOf(names, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        revenueCents = Arrays.copyOf(revenueCents, capacity);
+        slots = new int[capacity * 2];
+        for (int i = 0; i < size; i++) {
+            slots[findSlot(productIds[i])] = i + 1;
+        }
+    }
+}
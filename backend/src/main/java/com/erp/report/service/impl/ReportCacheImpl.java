@@ -0,0 +1,161 @@
+package com.erp.report.service.impl;
+
+import com.erp.common.service.ClusterNotifier;
+import com.erp.report.service.ReportCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Caffeine implementation of ReportCache.
+ * A miss registers a future for its key, and callers that miss the same key while
+ * it loads wait on that future instead of computing the report again.
+ * As in the sale response cache, every invalidation bumps a generation counter and
+ * a result is only stored if none happened while it was loading.
+ * Invalidations are sent to the other nodes through the ClusterNotifier when the
+ * changing transaction commits; a node evicts every result whenever it starts
+ * listening, since it may have missed some.
+ */
+@Service
+public class ReportCacheImpl implements ReportCache {
+
+    private static final String CHANNEL = "report_cache";
+    private static final String ALL_DAYS = "*";
+
+    private final Cache<ReportKey, Object> results;
+    private final ConcurrentMap<ReportKey, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter coalesced;
+    private final ClusterNotifier clusterNotifier;
+
+    public ReportCacheImpl(
+            ClusterNotifier clusterNotifier,
+            MeterRegistry meterRegistry,
+            @Value("${reports.cache.size:200}") long size,
+            @Value("${reports.cache.ttl:24h}") Duration ttl) {
+        this.results = Caffeine.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, results, "reports.results");
+        this.coalesced = Counter.builder("reports.results.coalesced")
+                .description("Report cache misses that waited for a load already in progress")
+                .register(meterRegistry);
+        this.clusterNotifier = clusterNotifier;
+        clusterNotifier.subscribe(CHANNEL, new ClusterNotifier.Subscriber() {
+            @Override
+            public void onMessage(String payload) {
+                evict(matching(ALL_DAYS.equals(payload) ? null : LocalDate.parse(payload)));
+            }
+
+            @Override
+            public void onListening() {
+                evict(key -> true);
+            }
+        });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(ReportType type, LocalDate startDate, LocalDate endDate, Supplier<T> loader) {
+        ReportKey key = new ReportKey(type, startDate, endDate);
+        Object result = results.getIfPresent(key);
+        if (result != null) {
+            return (T) result;
+        }
+
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> inProgress = loading.putIfAbsent(key, load);
+        if (inProgress != null) {
+            coalesced.increment();
+            return (T) await(inProgress);
+        }
+        try {
+            // A load that finished just before ours was registered
+            result = results.getIfPresent(key);
+            if (result == null) {
+                long loadedIn = generation.get();
+                result = loader.get();
+                if (generation.get() == loadedIn) {
+                    results.put(key, result);
+                }
+            }
+            load.complete(result);
+            return (T) result;
+        } catch (RuntimeException ex) {
+            load.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            // Errors are not caught above; waiting callers must not wait forever
+            load.completeExceptionally(new IllegalStateException("Report load failed"));
+            loading.remove(key, load);
+        }
+    }
+
+    @Override
+    public void invalidate(LocalDate day) {
+        evictAfterCommit(matching(day));
+        clusterNotifier.publish(CHANNEL, day.toString());
+    }
+
+    @Override
+    public void invalidateAll() {
+        evictAfterCommit(matching(null));
+        clusterNotifier.publish(CHANNEL, ALL_DAYS);
+    }
+
+    /**
+     * Matches the results whose period contains the day, or every result for null.
+     */
+    private static Predicate<ReportKey> matching(LocalDate day) {
+        return day == null ? key -> true : key -> !day.isBefore(key.startDate()) && !day.isAfter(key.endDate());
+    }
+
+    private void evictAfterCommit(Predicate<ReportKey> matches) {
+        evict(matches);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(matches);
+                }
+            });
+        }
+    }
+
+    private void evict(Predicate<ReportKey> matches) {
+        generation.incrementAndGet();
+        results.asMap().keySet().removeIf(matches);
+    }
+
+    private static Object await(CompletableFuture<Object> load) {
+        try {
+            return load.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private record ReportKey(ReportType type, LocalDate startDate, LocalDate endDate) {
+    }
+}
@@ -0,0 +1,342 @@
+package com.erp.report.service.impl;
+
+import com.erp.common.exception.BadRequestException;
+import com.erp.common.exception.ResourceNotFoundException;
+import com.erp.common.exception.ServiceUnavailableException;
+import com.erp.report.dto.ReportFormat;
+import com.erp.report.dto.ReportJobResponse;
+import com.erp.report.dto.ReportJobStatus;
+import com.erp.report.service.ReportJobService;
+import com.erp.report.service.ReportService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementation of ReportJobService.
+ * Jobs are kept in memory on the node that accepted them. A fixed pool of report
+ * workers takes them from a bounded queue, so at most that many reports hold a
+ * database connection at once; when the queue is full, submissions get HTTP 503.
+ * Each report is written to a partial file and renamed when complete. Finished
+ * files are evicted least recently downloaded first once their total size passes
+ * max-disk-size, and finished jobs are forgotten after the retention period.
+ */
+@Slf4j
+@Service
+public class ReportJobServiceImpl implements ReportJobService {
+
+    private static final String PARTIAL_SUFFIX = ".part";
+
+    private final ReportService reportService;
+    private final Path directory;
+    private final long maxDiskBytes;
+    private final Duration retention;
+    private final ThreadPoolExecutor workers;
+
+    private final Counter deduplicated;
+    private final Counter rejected;
+    private final Counter evicted;
+    private final Timer duration;
+
+    // All job state below is guarded by this service's lock
+    private final Map<String, ReportJob> jobs = new HashMap<>();
+    private final Map<JobKey, ReportJob> pending = new HashMap<>();
+    // Access ordered, so the least recently downloaded report comes first
+    private final LinkedHashMap<String, ReportJob> artifacts = new LinkedHashMap<>(16, 0.75f, true);
+    private volatile long artifactBytes;
+
+    public ReportJobServiceImpl(
+            ReportService reportService,
+            MeterRegistry meterRegistry,
+            @Value("${reports.jobs.directory:${java.io.tmpdir}/erp-reports}") Path directory,
+            @Value("${reports.jobs.workers:2}") int workerCount,
+            @Value("${reports.jobs.queue-capacity:20}") int queueCapacity,
+            @Value("${reports.jobs.max-disk-size:1GB}") DataSize maxDiskSize,
+            @Value("${reports.jobs.retention:24h}") Duration retention) {
+        this.reportService = reportService;
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskSize.toBytes();
+        this.retention = retention;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "report-worker-" + threadNumber.incrementAndGet()));
+
+        this.deduplicated = Counter.builder("reports.jobs.deduplicated")
+                .description("Report submissions answered with an identical pending job")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("reports.jobs.rejected")
+                .description("Report submissions rejected because the job queue was full")
+                .register(meterRegistry);
+        this.evicted = Counter.builder("reports.jobs.evicted")
+                .description("Finished reports deleted to stay within the disk limit")
+                .register(meterRegistry);
+        this.duration = Timer.builder("reports.jobs.duration")
+                .description("Time spent writing a report file")
+                .register(meterRegistry);
+        Gauge.builder("reports.jobs.queue.size", workers, executor -> executor.getQueue().size())
+                .description("Report jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("reports.jobs.disk.size", this, service -> service.artifactBytes)
+                .description("Bytes of finished reports kept on disk")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Creates the report directory and removes files left by a previous run,
+     * whose jobs are no longer known.
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, "*.{csv,pdf,part}")) {
+            for (Path leftover : leftovers) {
+                deleteQuietly(leftover);
+            }
+        }
+        log.info("Report jobs write to {} with {} worker(s)", directory, workers.getCorePoolSize());
+    }
+
+    /**
+     * Abandons queued and running reports; their partial files are removed on the next start.
+     */
+    @PreDestroy
+    public void stop() {
+        workers.shutdownNow();
+    }
+
+    @Override
+    public ReportJobResponse submit(ReportFormat format, LocalDate startDate, LocalDate endDate,
+                                    boolean includeSales, String submittedBy) {
+        if (endDate.isBefore(startDate)) {
+            throw new BadRequestException("End date must not be before start date");
+        }
+        // The sales listing only exists in the PDF report
+        JobKey key = new JobKey(format, startDate, endDate, format == ReportFormat.PDF && includeSales);
+
+        synchronized (this) {
+            ReportJob existing = pending.get(key);
+            if (existing != null) {
+                deduplicated.increment();
+                log.debug("Report job {} already pending for {}", existing.id, key);
+                return existing.toResponse();
+            }
+
+            ReportJob job = new ReportJob(UUID.randomUUID().toString(), key, submittedBy);
+            jobs.put(job.id, job);
+            pending.put(key, job);
+            try {
+                workers.execute(() -> run(job));
+            } catch (RejectedExecutionException ex) {
+                jobs.remove(job.id);
+                pending.remove(key);
+                rejected.increment();
+                throw new ServiceUnavailableException("Too many reports in progress, please retry later");
+            }
+            log.info("Queued {} report job {} from {} to {}", format, job.id, startDate, endDate);
+            return job.toResponse();
+        }
+    }
+
+    @Override
+    public synchronized ReportJobResponse getJob(String id) {
+        return find(id).toResponse();
+    }
+
+    @Override
+    public synchronized InputStream openArtifact(String id) {
+        ReportJob job = find(id);
+        if (job.status != ReportJobStatus.COMPLETED) {
+            throw new BadRequestException("Report job is " + job.status);
+        }
+        // Marks the report as recently used
+        artifacts.get(id);
+        try {
+            // Eviction can delete the file while it is downloaded; the open stream keeps reading it
+            return Files.newInputStream(job.artifact);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to open report " + id, ex);
+        }
+    }
+
+    /**
+     * Forgets finished jobs after the retention period and deletes their files.
+     */
+    @Scheduled(fixedDelay = 10, timeUnit = TimeUnit.MINUTES)
+    public synchronized void purgeFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        Iterator<ReportJob> iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            ReportJob job = iterator.next();
+            if (job.completedAt != null && job.completedAt.isBefore(cutoff)) {
+                iterator.remove();
+                if (artifacts.remove(job.id) != null) {
+                    artifactBytes -= job.sizeBytes;
+                    deleteQuietly(job.artifact);
+                }
+            }
+        }
+    }
+
+    private void run(ReportJob job) {
+        synchronized (this) {
+            job.status = ReportJobStatus.RUNNING;
+            job.startedAt = LocalDateTime.now();
+        }
+        JobKey key = job.key;
+        Path partial = directory.resolve(job.id + PARTIAL_SUFFIX);
+        Path artifact = directory.resolve(job.id + "." + key.format().getExtension());
+        Timer.Sample sample = Timer.start();
+        try {
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(partial))) {
+                switch (key.format()) {
+                    case CSV -> reportService.writeSalesCsvReport(key.startDate(), key.endDate(), output);
+                    case PDF -> reportService.writeSalesPdfReport(
+                            key.startDate(), key.endDate(), key.includeSales(), output);
+                }
+            }
+            Files.move(partial, artifact, StandardCopyOption.ATOMIC_MOVE);
+            complete(job, artifact, Files.size(artifact));
+            log.info("Report job {} completed", job.id);
+        } catch (Exception ex) {
+            log.error("Report job {} failed", job.id, ex);
+            deleteQuietly(partial);
+            fail(job);
+        } finally {
+            sample.stop(duration);
+        }
+    }
+
+    private synchronized void complete(ReportJob job, Path artifact, long sizeBytes) {
+        job.status = ReportJobStatus.COMPLETED;
+        job.completedAt = LocalDateTime.now();
+        job.artifact = artifact;
+        job.sizeBytes = sizeBytes;
+        pending.remove(job.key, job);
+        artifacts.put(job.id, job);
+        artifactBytes += sizeBytes;
+        evictOverflow(job);
+    }
+
+    private synchronized void fail(ReportJob job) {
+        job.status = ReportJobStatus.FAILED;
+        job.completedAt = LocalDateTime.now();
+        job.error = "Report generation failed";
+        pending.remove(job.key, job);
+    }
+
+    /**
+     * Deletes the least recently used reports until the rest fit within the disk
+     * limit. The report just written is kept even if it alone is larger.
+     */
+    private void evictOverflow(ReportJob keep) {
+        Iterator<ReportJob> iterator = artifacts.values().iterator();
+        while (artifactBytes > maxDiskBytes && iterator.hasNext()) {
+            ReportJob oldest = iterator.next();
+            if (oldest == keep) {
+                continue;
+            }
+            iterator.remove();
+            artifactBytes -= oldest.sizeBytes;
+            oldest.status = ReportJobStatus.EXPIRED;
+            deleteQuietly(oldest.artifact);
+            evicted.increment();
+            log.debug("Evicted report {} to stay within the disk limit", oldest.id);
+        }
+    }
+
+    private ReportJob find(String id) {
+        ReportJob job = jobs.get(id);
+        if (job == null) {
+            throw new ResourceNotFoundException("Report job", "id", id);
+        }
+        return job;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            log.warn("Could not delete report file {}", path, ex);
+        }
+    }
+
+    /**
+     * What makes two report jobs identical.
+     */
+    private record JobKey(ReportFormat format, LocalDate startDate, LocalDate endDate, boolean includeSales) {
+    }
+
+    /**
+     * A submitted report. Mutable fields are guarded by the service lock.
+     */
+    private static final class ReportJob {
+
+        private final String id;
+        private final JobKey key;
+        private final String submittedBy;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+
+        private ReportJobStatus status = ReportJobStatus.QUEUED;
+        private LocalDateTime startedAt;
+        private LocalDateTime completedAt;
+        private Path artifact;
+        private long sizeBytes;
+        private String error;
+
+        private ReportJob(String id, JobKey key, String submittedBy) {
+            this.id = id;
+            this.key = key;
+            this.submittedBy = submittedBy;
+        }
+
+        private ReportJobResponse toResponse() {
+            return ReportJobResponse.builder()
+                    .id(id)
+                    .format(key.format())
+                    .startDate(key.startDate())
+                    .endDate(key.endDate())
+                    .includeSales(key.includeSales())
+                    .status(status)
+                    .submittedBy(submittedBy)
+                    .submittedAt(submittedAt)
+                    .startedAt(startedAt)
+                    .completedAt(completedAt)
+                    .sizeBytes(status == ReportJobStatus.COMPLETED ? sizeBytes : null)
+                    .error(error)
+                    .build();
+        }
+    }
+}
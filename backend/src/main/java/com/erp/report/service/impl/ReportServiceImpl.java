@@ -1,143 +1,247 @@
 package com.erp.report.service.impl;
 
+import com.erp.common.exception.BadRequestException;
+import com.erp.common.exception.ServiceUnavailableException;
+import com.erp.common.money.Money;
+import com.erp.report.dto.ProductRanking;
 import com.erp.report.dto.SalesReportSummary;
+import com.erp.report.service.ReportCache;
 import com.erp.report.service.ReportService;
-import com.erp.sales.entity.Sale;
+import com.erp.sales.dto.SaleSummaryRow;
 import com.erp.sales.repository.SaleRepository;
+import com.itextpdf.io.font.constants.StandardFonts;
 import com.itextpdf.kernel.colors.ColorConstants;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.AreaBreak;
 import com.itextpdf.layout.element.Cell;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
 import com.itextpdf.layout.properties.TextAlignment;
 import com.itextpdf.layout.properties.UnitValue;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-
-import java.io.ByteArrayOutputStream;
-import java.io.PrintWriter;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 /**
  * Implementation of ReportService.
- * Handles report generation logic.
+ * Handles report generation logic. The summary is served from the daily sales
+ * rollups, with closed periods cached and long ranges read in parallel partitions;
+ * the CSV export and the PDF sales listing stream one projected row per sale from
+ * a database cursor. None of them loads entities.
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class ReportServiceImpl implements ReportService {
 
+    /**
+     * Rows added to a large PDF table between flushes.
+     */
+    private static final int LARGE_TABLE_FLUSH_ROWS = 100;
+
+    private static final int DEFAULT_TOP_PRODUCTS = 10;
+    private static final int MAX_TOP_PRODUCTS = 100;
+
+    // Cancellations can leave rows that add up to zero; those days and keys had no sales
+    private static final String PAYMENT_METHODS_SQL =
+            "SELECT payment_method, SUM(sales_count) AS sales_count, SUM(revenue) AS revenue, " +
+            "SUM(tax) AS tax, SUM(discount) AS discount " +
+            "FROM sales_daily_payment_rollup WHERE sale_day BETWEEN ? AND ? " +
+            "GROUP BY payment_method HAVING SUM(sales_count) > 0";
+
+    private static final String DAILY_SQL =
+            "SELECT sale_day, SUM(sales_count) AS sales_count, SUM(revenue) AS revenue " +
+            "FROM sales_daily_payment_rollup WHERE sale_day BETWEEN ? AND ? " +
+            "GROUP BY sale_day HAVING SUM(sales_count) > 0 ORDER BY sale_day";
+
+    private static final String PRODUCTS_SQL =
+            "SELECT product_id, MAX(product_name COLLATE \"C\") AS product_name, " +
+            "SUM(quantity_sold) AS quantity_sold, CAST(SUM(revenue) * 100 AS BIGINT) AS revenue_cents " +
+            "FROM sales_daily_product_rollup WHERE sale_day BETWEEN ? AND ? " +
+            "GROUP BY product_id HAVING SUM(quantity_sold) > 0";
+
     private final SaleRepository saleRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReportCache reportCache;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int partitionDays;
+    private final Duration partitionTimeout;
+    private final ThreadPoolExecutor partitionWorkers;
+
+    public ReportServiceImpl(
+            SaleRepository saleRepository,
+            JdbcTemplate jdbcTemplate,
+            ReportCache reportCache,
+            PlatformTransactionManager transactionManager,
+            @Value("${reports.partitions.days:31}") int partitionDays,
+            @Value("${reports.partitions.threads:4}") int partitionThreads,
+            @Value("${reports.partitions.queue-capacity:100}") int partitionQueueCapacity,
+            @Value("${reports.partitions.timeout:60s}") Duration partitionTimeout) {
+        this.saleRepository = saleRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.reportCache = reportCache;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.partitionDays = partitionDays;
+        this.partitionTimeout = partitionTimeout;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.partitionWorkers = partitionThreads > 1
+                ? new ThreadPoolExecutor(partitionThreads, partitionThreads, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(partitionQueueCapacity),
+                        runnable -> new Thread(runnable, "report-partition-" + threadNumber.incrementAndGet()))
+                : null;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (partitionWorkers != null) {
+            partitionWorkers.shutdownNow();
+        }
+    }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public SalesReportSummary generateSalesReport(LocalDate startDate, LocalDate endDate) {
-        log.info("Generating sales report from {} to {}", startDate, endDate);
+        return generateSalesReport(startDate, endDate, DEFAULT_TOP_PRODUCTS, ProductRanking.QUANTITY);
+    }
 
-        LocalDateTime start = startDate.atStartOfDay();
-        LocalDateTime end = endDate.atTime(LocalTime.MAX);
+    /**
+     * Reads the daily rollups, so the cost depends on the number of days and products
+     * in the range, not on the number of sales. The days before today are cached as
+     * one closed period; today and later days are read on every call and added to it.
+     * Runs outside a transaction so that the caller holds no connection while the
+     * partitions, each on a connection of its own, are read.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public SalesReportSummary generateSalesReport(LocalDate startDate, LocalDate endDate,
+                                                  int topProducts, ProductRanking ranking) {
+        if (topProducts < 1 || topProducts > MAX_TOP_PRODUCTS) {
+            throw new BadRequestException("Top products must be between 1 and " + MAX_TOP_PRODUCTS);
+        }
+        log.info("Generating sales report from {} to {}", startDate, endDate);
 
-        List<Sale> sales = saleRepository.findSalesBetweenDates(start, end);
-        List<Sale> completedSales = sales.stream()
-                .filter(s -> s.getStatus() == Sale.SaleStatus.COMPLETED)
-                .collect(Collectors.toList());
-
-        BigDecimal totalRevenue = completedSales.stream()
-                .map(Sale::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalTax = completedSales.stream()
-                .map(Sale::getTaxAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalDiscount = completedSales.stream()
-                .map(Sale::getDiscountAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal avgSale = completedSales.isEmpty() ? BigDecimal.ZERO :
-                totalRevenue.divide(BigDecimal.valueOf(completedSales.size()), 2, RoundingMode.HALF_UP);
-
-        // Daily summary
-        List<SalesReportSummary.DailySalesSummary> dailySummary = buildDailySummary(completedSales);
-
-        // Top products
-        List<SalesReportSummary.TopProductSummary> topProducts = buildTopProducts(completedSales);
-
-        // Payment method breakdown
-        List<SalesReportSummary.PaymentMethodSummary> paymentBreakdown = buildPaymentBreakdown(completedSales);
-
-        return SalesReportSummary.builder()
-                .startDate(startDate)
-                .endDate(endDate)
-                .totalSales((long) completedSales.size())
-                .totalRevenue(totalRevenue)
-                .totalTax(totalTax)
-                .totalDiscount(totalDiscount)
-                .averageSaleAmount(avgSale)
-                .dailySummary(dailySummary)
-                .topProducts(topProducts)
-                .paymentMethodBreakdown(paymentBreakdown)
-                .build();
+        LocalDate today = LocalDate.now();
+        LocalDate closedEnd = endDate.isBefore(today) ? endDate : today.minusDays(1);
+        PeriodTotals totals = PeriodTotals.EMPTY;
+        if (!startDate.isAfter(closedEnd)) {
+            totals = reportCache.get(ReportCache.ReportType.SALES_SUMMARY, startDate, closedEnd,
+                    () -> loadPeriodTotals(startDate, closedEnd));
+        }
+        if (!endDate.isBefore(today)) {
+            LocalDate liveStart = startDate.isAfter(today) ? startDate : today;
+            totals = totals.plus(loadPeriodTotals(liveStart, endDate));
+        }
+        return totals.toSummary(startDate, endDate, topProducts, ranking);
     }
 
     @Override
-    public byte[] generateSalesCsvReport(LocalDate startDate, LocalDate endDate) {
+    public void writeSalesCsvReport(LocalDate startDate, LocalDate endDate, OutputStream output) {
         log.info("Generating CSV report from {} to {}", startDate, endDate);
 
         LocalDateTime start = startDate.atStartOfDay();
         LocalDateTime end = endDate.atTime(LocalTime.MAX);
-        List<Sale> sales = saleRepository.findSalesBetweenDates(start, end);
-
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        PrintWriter writer = new PrintWriter(out);
-
-        writer.println("Sale Number,Date,Customer,Items,Subtotal,Tax,Discount,Total,Payment Method,Status");
-
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        for (Sale sale : sales) {
-            writer.printf("%s,%s,%s,%d,%.2f,%.2f,%.2f,%.2f,%s,%s%n",
-                    sale.getSaleNumber(),
-                    sale.getSaleDate().format(formatter),
-                    sale.getCustomerName() != null ? sale.getCustomerName() : "N/A",
-                    sale.getItems().size(),
-                    sale.getSubtotal(),
-                    sale.getTaxAmount(),
-                    sale.getDiscountAmount(),
-                    sale.getTotalAmount(),
-                    sale.getPaymentMethod(),
-                    sale.getStatus());
+        long rows = 0;
+
+        try (Stream<SaleSummaryRow> sales = saleRepository.streamSummaryRowsBetweenDates(start, end)) {
+            // Not closed: the output stream belongs to the caller
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            writer.write("Sale Number,Date,Customer,Items,Subtotal,Tax,Discount,Total,Payment Method,Status");
+            writer.write(System.lineSeparator());
+            // Send the header at once, before the first rows are read
+            writer.flush();
+
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+            Iterator<SaleSummaryRow> iterator = sales.iterator();
+            while (iterator.hasNext()) {
+                SaleSummaryRow sale = iterator.next();
+                writer.write(String.format("%s,%s,%s,%d,%.2f,%.2f,%.2f,%.2f,%s,%s%n",
+                        sale.getSaleNumber(),
+                        sale.getSaleDate().format(formatter),
+                        sale.getCustomerName() != null ? sale.getCustomerName() : "N/A",
+                        sale.getItemCount(),
+                        sale.getSubtotal(),
+                        sale.getTaxAmount(),
+                        sale.getDiscountAmount(),
+                        sale.getTotalAmount(),
+                        sale.getPaymentMethod(),
+                        sale.getStatus()));
+                rows++;
+            }
+            writer.flush();
+        } catch (IOException ex) {
+            // Usually the client went away; stop reading the cursor
+            throw new UncheckedIOException("Failed to write CSV report", ex);
         }
-
-        writer.flush();
-        return out.toByteArray();
+        log.info("Wrote {} sales to CSV report", rows);
     }
 
+    /**
+     * Reads the summary before taking a connection for the sales listing, for the
+     * same reason as generateSalesReport.
+     */
     @Override
-    public byte[] generateSalesPdfReport(LocalDate startDate, LocalDate endDate) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void writeSalesPdfReport(LocalDate startDate, LocalDate endDate, boolean includeSales,
+                                    OutputStream output) {
         log.info("Generating PDF report from {} to {}", startDate, endDate);
         SalesReportSummary summary = generateSalesReport(startDate, endDate);
 
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfWriter writer = new PdfWriter(output);
+        // The output stream belongs to the caller
+        writer.setCloseStream(false);
+
+        try (PdfDocument pdf = new PdfDocument(writer);
+             // Pages are written out as soon as they are complete, not kept until the end
+             Document document = new Document(pdf, pdf.getDefaultPageSize(), true)) {
 
-        try (PdfWriter writer = new PdfWriter(out);
-             PdfDocument pdf = new PdfDocument(writer);
-             Document document = new Document(pdf)) {
+            // One font of each weight per document instead of synthetic bold on every cell
+            PdfFont regular = PdfFontFactory.createFont(StandardFonts.HELVETICA);
+            PdfFont bold = PdfFontFactory.createFont(StandardFonts.HELVETICA_BOLD);
+            document.setFont(regular);
 
             // Title
             Paragraph title = new Paragraph("SALES REPORT")
                     .setFontSize(20)
-                    .setBold()
+                    .setFont(bold)
                     .setTextAlignment(TextAlignment.CENTER);
             document.add(title);
 
@@ -154,41 +258,39 @@ public class ReportServiceImpl implements ReportService {
                     .setWidth(UnitValue.createPercentValue(60))
                     .setMarginBottom(20);
 
-            addSummaryRow(summaryTable, "Total Sales", String.valueOf(summary.getTotalSales()));
-            addSummaryRow(summaryTable, "Total Revenue", String.format("$%.2f", summary.getTotalRevenue()));
-            addSummaryRow(summaryTable, "Total Tax", String.format("$%.2f", summary.getTotalTax()));
-            addSummaryRow(summaryTable, "Total Discount", String.format("$%.2f", summary.getTotalDiscount()));
-            addSummaryRow(summaryTable, "Average Sale", String.format("$%.2f", summary.getAverageSaleAmount()));
+            addSummaryRow(summaryTable, bold, "Total Sales", String.valueOf(summary.getTotalSales()));
+            addSummaryRow(summaryTable, bold, "Total Revenue", String.format("$%.2f", summary.getTotalRevenue()));
+            addSummaryRow(summaryTable, bold, "Total Tax", String.format("$%.2f", summary.getTotalTax()));
+            addSummaryRow(summaryTable, bold, "Total Discount", String.format("$%.2f", summary.getTotalDiscount()));
+            addSummaryRow(summaryTable, bold, "Average Sale", String.format("$%.2f", summary.getAverageSaleAmount()));
 
             document.add(summaryTable);
 
             // Daily Summary Section
             if (summary.getDailySummary() != null && !summary.getDailySummary().isEmpty()) {
-                document.add(new Paragraph("Daily Summary").setFontSize(14).setBold());
-
-                Table dailyTable = new Table(UnitValue.createPercentArray(new float[]{2, 1, 2}))
-                        .setWidth(UnitValue.createPercentValue(100));
-
-                addTableHeader(dailyTable, "Date", "Sales Count", "Revenue");
+                document.add(new Paragraph("Daily Summary").setFontSize(14).setFont(bold));
 
+                Table dailyTable = startLargeTable(document, bold, new float[]{2, 1, 2},
+                        "Date", "Sales Count", "Revenue");
+                int rows = 0;
                 for (SalesReportSummary.DailySalesSummary daily : summary.getDailySummary()) {
                     dailyTable.addCell(new Cell().add(new Paragraph(daily.getDate().toString())));
                     dailyTable.addCell(new Cell().add(new Paragraph(String.valueOf(daily.getSalesCount()))));
                     dailyTable.addCell(new Cell().add(new Paragraph(String.format("$%.2f", daily.getRevenue()))));
+                    flushEvery(dailyTable, ++rows);
                 }
-
-                document.add(dailyTable);
+                dailyTable.complete();
                 document.add(new Paragraph("\n"));
             }
 
             // Top Products Section
             if (summary.getTopProducts() != null && !summary.getTopProducts().isEmpty()) {
-                document.add(new Paragraph("Top Products").setFontSize(14).setBold());
+                document.add(new Paragraph("Top Products").setFontSize(14).setFont(bold));
 
                 Table productsTable = new Table(UnitValue.createPercentArray(new float[]{3, 1, 2}))
                         .setWidth(UnitValue.createPercentValue(100));
 
-                addTableHeader(productsTable, "Product", "Qty Sold", "Revenue");
+                addTableHeader(productsTable, bold, "Product", "Qty Sold", "Revenue");
 
                 for (SalesReportSummary.TopProductSummary product : summary.getTopProducts()) {
                     productsTable.addCell(new Cell().add(new Paragraph(product.getProductName())));
@@ -202,12 +304,12 @@ public class ReportServiceImpl implements ReportService {
 
             // Payment Method Breakdown
             if (summary.getPaymentMethodBreakdown() != null && !summary.getPaymentMethodBreakdown().isEmpty()) {
-                document.add(new Paragraph("Payment Method Breakdown").setFontSize(14).setBold());
+                document.add(new Paragraph("Payment Method Breakdown").setFontSize(14).setFont(bold));
 
                 Table paymentTable = new Table(UnitValue.createPercentArray(new float[]{2, 1, 2}))
                         .setWidth(UnitValue.createPercentValue(100));
 
-                addTableHeader(paymentTable, "Payment Method", "Count", "Amount");
+                addTableHeader(paymentTable, bold, "Payment Method", "Count", "Amount");
 
                 for (SalesReportSummary.PaymentMethodSummary payment : summary.getPaymentMethodBreakdown()) {
                     paymentTable.addCell(new Cell().add(new Paragraph(payment.getPaymentMethod())));
@@ -218,81 +320,233 @@ public class ReportServiceImpl implements ReportService {
                 document.add(paymentTable);
             }
 
+            if (includeSales) {
+                // The cursor is only open inside a transaction
+                readOnlyTransaction.executeWithoutResult(
+                        status -> addSalesSection(document, bold, startDate, endDate));
+            }
+
         } catch (Exception e) {
             log.error("Error generating PDF report", e);
             throw new RuntimeException("Failed to generate PDF report", e);
         }
+    }
+
+    /**
+     * Loads ranges longer than one partition as consecutive partitions of partitionDays,
+     * each in its own read-only transaction on a partition worker, and adds them up in
+     * date order. Rollup totals are sums, so the result is the same as one query over
+     * the whole range. Partitions wait in a bounded queue; a report whose partitions
+     * do not fit is refused with HTTP 503. Gives up after the partition timeout,
+     * cancelling the partitions that have not started yet.
+     */
+    private PeriodTotals loadPeriodTotals(LocalDate startDate, LocalDate endDate) {
+        if (partitionWorkers == null || ChronoUnit.DAYS.between(startDate, endDate) < partitionDays) {
+            return readOnlyTransaction.execute(status -> loadPartition(startDate, endDate));
+        }
+
+        List<CompletableFuture<PeriodTotals>> partitions = new ArrayList<>();
+        try {
+            for (LocalDate from = startDate; !from.isAfter(endDate); from = from.plusDays(partitionDays)) {
+                LocalDate partitionStart = from;
+                LocalDate partitionEnd = from.plusDays(partitionDays - 1L).isBefore(endDate)
+                        ? from.plusDays(partitionDays - 1L) : endDate;
+                partitions.add(CompletableFuture.supplyAsync(() -> readOnlyTransaction.execute(
+                        status -> loadPartition(partitionStart, partitionEnd)), partitionWorkers));
+            }
+        } catch (RejectedExecutionException ex) {
+            cancel(partitions);
+            log.warn("Sales report from {} to {} rejected, partition queue is full", startDate, endDate);
+            throw new ServiceUnavailableException("Too many sales reports in progress, please retry later");
+        }
+        log.debug("Loading sales report from {} to {} in {} partitions", startDate, endDate, partitions.size());
 
-        return out.toByteArray();
+        long deadline = System.nanoTime() + partitionTimeout.toNanos();
+        PeriodTotals totals = PeriodTotals.EMPTY;
+        try {
+            for (CompletableFuture<PeriodTotals> partition : partitions) {
+                totals = totals.plus(partition.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+            }
+        } catch (TimeoutException ex) {
+            cancel(partitions);
+            log.warn("Sales report from {} to {} timed out after {}", startDate, endDate, partitionTimeout);
+            throw new ServiceUnavailableException("Sales report is taking too long, please retry later");
+        } catch (ExecutionException ex) {
+            cancel(partitions);
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            cancel(partitions);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading the sales report", ex);
+        }
+        return totals;
     }
 
-    private void addSummaryRow(Table table, String label, String value) {
-        table.addCell(new Cell().add(new Paragraph(label).setBold()));
+    /**
+     * Partitions still queued are dropped; running ones finish on their worker and are ignored.
+     */
+    private static void cancel(List<CompletableFuture<PeriodTotals>> partitions) {
+        partitions.forEach(partition -> partition.cancel(false));
+    }
+
+    private PeriodTotals loadPartition(LocalDate startDate, LocalDate endDate) {
+        Map<String, PaymentTotal> payments = new HashMap<>();
+        jdbcTemplate.query(PAYMENT_METHODS_SQL, rs -> {
+            payments.put(rs.getString("payment_method"), new PaymentTotal(rs.getLong("sales_count"),
+                    Money.of(rs.getBigDecimal("revenue")), Money.of(rs.getBigDecimal("tax")),
+                    Money.of(rs.getBigDecimal("discount"))));
+        }, startDate, endDate);
+
+        List<DayTotal> days = jdbcTemplate.query(DAILY_SQL, (rs, rowNum) ->
+                new DayTotal(rs.getObject("sale_day", LocalDate.class), rs.getLong("sales_count"),
+                        Money.of(rs.getBigDecimal("revenue"))), startDate, endDate);
+
+        ProductTotals products = new ProductTotals();
+        jdbcTemplate.query(PRODUCTS_SQL, rs -> {
+            products.add(rs.getLong("product_id"), rs.getString("product_name"),
+                    rs.getLong("quantity_sold"), rs.getLong("revenue_cents"));
+        }, startDate, endDate);
+
+        return new PeriodTotals(days, payments, products);
+    }
+
+    /**
+     * Lists every sale in the range, read from a database cursor and rendered into a
+     * large table whose finished rows are flushed as it grows.
+     */
+    private void addSalesSection(Document document, PdfFont bold, LocalDate startDate, LocalDate endDate) {
+        document.add(new AreaBreak());
+        document.add(new Paragraph("Sales").setFontSize(14).setFont(bold));
+
+        Table salesTable = startLargeTable(document, bold, new float[]{2, 2, 3, 1, 2, 2, 2},
+                "Sale Number", "Date", "Customer", "Items", "Total", "Payment", "Status");
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+        int rows = 0;
+        try (Stream<SaleSummaryRow> sales = saleRepository.streamSummaryRowsBetweenDates(
+                startDate.atStartOfDay(), endDate.atTime(LocalTime.MAX))) {
+            Iterator<SaleSummaryRow> iterator = sales.iterator();
+            while (iterator.hasNext()) {
+                SaleSummaryRow sale = iterator.next();
+                salesTable.addCell(new Cell().add(new Paragraph(sale.getSaleNumber())));
+                salesTable.addCell(new Cell().add(new Paragraph(sale.getSaleDate().format(formatter))));
+                salesTable.addCell(new Cell().add(new Paragraph(
+                        sale.getCustomerName() != null ? sale.getCustomerName() : "N/A")));
+                salesTable.addCell(new Cell().add(new Paragraph(String.valueOf(sale.getItemCount()))));
+                salesTable.addCell(new Cell().add(new Paragraph(String.format("$%.2f", sale.getTotalAmount()))));
+                salesTable.addCell(new Cell().add(new Paragraph(sale.getPaymentMethod().name())));
+                salesTable.addCell(new Cell().add(new Paragraph(sale.getStatus().name())));
+                flushEvery(salesTable, ++rows);
+            }
+        }
+        salesTable.complete();
+    }
+
+    /**
+     * Adds a large table to the document; its rows are rendered as they are flushed.
+     */
+    private Table startLargeTable(Document document, PdfFont bold, float[] widths, String... headers) {
+        Table table = new Table(UnitValue.createPercentArray(widths), true)
+                .setWidth(UnitValue.createPercentValue(100));
+        addTableHeader(table, bold, headers);
+        document.add(table);
+        return table;
+    }
+
+    private static void flushEvery(Table table, int rows) {
+        if (rows % LARGE_TABLE_FLUSH_ROWS == 0) {
+            table.flush();
+        }
+    }
+
+    private void addSummaryRow(Table table, PdfFont bold, String label, String value) {
+        table.addCell(new Cell().add(new Paragraph(label).setFont(bold)));
         table.addCell(new Cell().add(new Paragraph(value)));
     }
 
-    private void addTableHeader(Table table, String... headers) {
+    private void addTableHeader(Table table, PdfFont bold, String... headers) {
         for (String header : headers) {
             Cell cell = new Cell()
-                    .add(new Paragraph(header).setBold())
+                    .add(new Paragraph(header).setFont(bold))
                     .setBackgroundColor(ColorConstants.LIGHT_GRAY);
             table.addHeaderCell(cell);
         }
     }
 
-    private List<SalesReportSummary.DailySalesSummary> buildDailySummary(List<Sale> sales) {
-        Map<LocalDate, List<Sale>> salesByDate = sales.stream()
-                .collect(Collectors.groupingBy(s -> s.getSaleDate().toLocalDate()));
-
-        return salesByDate.entrySet().stream()
-                .map(entry -> SalesReportSummary.DailySalesSummary.builder()
-                        .date(entry.getKey())
-                        .salesCount((long) entry.getValue().size())
-                        .revenue(entry.getValue().stream()
-                                .map(Sale::getTotalAmount)
-                                .reduce(BigDecimal.ZERO, BigDecimal::add))
-                        .build())
-                .sorted(Comparator.comparing(SalesReportSummary.DailySalesSummary::getDate))
-                .collect(Collectors.toList());
+    private record DayTotal(LocalDate day, long count, Money revenue) {
     }
 
-    private List<SalesReportSummary.TopProductSummary> buildTopProducts(List<Sale> sales) {
-        Map<Long, SalesReportSummary.TopProductSummary> productMap = new HashMap<>();
-
-        sales.forEach(sale -> sale.getItems().forEach(item -> {
-            Long productId = item.getProduct().getId();
-            SalesReportSummary.TopProductSummary existing = productMap.get(productId);
-            if (existing == null) {
-                productMap.put(productId, SalesReportSummary.TopProductSummary.builder()
-                        .productId(productId)
-                        .productName(item.getProductName())
-                        .quantitySold((long) item.getQuantity())
-                        .revenue(item.getLineTotal())
-                        .build());
-            } else {
-                existing.setQuantitySold(existing.getQuantitySold() + item.getQuantity());
-                existing.setRevenue(existing.getRevenue().add(item.getLineTotal()));
-            }
-        }));
+    private record PaymentTotal(long count, Money revenue, Money tax, Money discount) {
 
-        return productMap.values().stream()
-                .sorted((a, b) -> b.getQuantitySold().compareTo(a.getQuantitySold()))
-                .limit(10)
-                .collect(Collectors.toList());
+        private PaymentTotal plus(PaymentTotal other) {
+            return new PaymentTotal(count + other.count, revenue.plus(other.revenue),
+                    tax.plus(other.tax), discount.plus(other.discount));
+        }
     }
 
-    private List<SalesReportSummary.PaymentMethodSummary> buildPaymentBreakdown(List<Sale> sales) {
-        return sales.stream()
-                .collect(Collectors.groupingBy(Sale::getPaymentMethod))
-                .entrySet().stream()
-                .map(entry -> SalesReportSummary.PaymentMethodSummary.builder()
-                        .paymentMethod(entry.getKey().name())
-                        .count((long) entry.getValue().size())
-                        .amount(entry.getValue().stream()
-                                .map(Sale::getTotalAmount)
-                                .reduce(BigDecimal.ZERO, BigDecimal::add))
-                        .build())
-                .collect(Collectors.toList());
+    /**
+     * Rollup totals of a period, kept whole so a cached closed period can be added to
+     * the live days. Never modified once built; summaries get their own DTOs.
+     */
+    private record PeriodTotals(List<DayTotal> days, Map<String, PaymentTotal> payments,
+                                ProductTotals products) {
+
+        private static final PeriodTotals EMPTY = new PeriodTotals(List.of(), Map.of(), new ProductTotals());
+
+        /**
+         * Adds the totals of a later, non-overlapping period. Associative, so a period
+         * can be split anywhere and added back up in date order.
+         */
+        private PeriodTotals plus(PeriodTotals later) {
+            List<DayTotal> allDays = new ArrayList<>(days);
+            allDays.addAll(later.days);
+            Map<String, PaymentTotal> allPayments = new HashMap<>(payments);
+            later.payments.forEach((method, total) -> allPayments.merge(method, total, PaymentTotal::plus));
+            ProductTotals allProducts = products.copy();
+            allProducts.addAll(later.products);
+            return new PeriodTotals(allDays, allPayments, allProducts);
+        }
+
+        private SalesReportSummary toSummary(LocalDate startDate, LocalDate endDate,
+                                             int topProducts, ProductRanking ranking) {
+            long totalSales = 0;
+            Money totalRevenue = Money.ZERO;
+            Money totalTax = Money.ZERO;
+            Money totalDiscount = Money.ZERO;
+            for (PaymentTotal payment : payments.values()) {
+                totalSales += payment.count();
+                totalRevenue = totalRevenue.plus(payment.revenue());
+                totalTax = totalTax.plus(payment.tax());
+                totalDiscount = totalDiscount.plus(payment.discount());
+            }
+
+            return SalesReportSummary.builder()
+                    .startDate(startDate)
+                    .endDate(endDate)
+                    .totalSales(totalSales)
+                    .totalRevenue(totalRevenue.toBigDecimal())
+                    .totalTax(totalTax.toBigDecimal())
+                    .totalDiscount(totalDiscount.toBigDecimal())
+                    .averageSaleAmount((totalSales == 0 ? Money.ZERO : totalRevenue.dividedBy(totalSales))
+                            .toBigDecimal())
+                    .dailySummary(days.stream()
+                            .map(day -> SalesReportSummary.DailySalesSummary.builder()
+                                    .date(day.day())
+                                    .salesCount(day.count())
+                                    .revenue(day.revenue().toBigDecimal())
+                                    .build())
+                            .toList())
+                    .topProducts(products.top(topProducts, ranking))
+                    .paymentMethodBreakdown(payments.entrySet().stream()
+                            .map(entry -> SalesReportSummary.PaymentMethodSummary.builder()
+                                    .paymentMethod(entry.getKey())
+                                    .count(entry.getValue().count())
+                                    .amount(entry.getValue().revenue().toBigDecimal())
+                                    .build())
+                            .toList())
+                    .build();
+        }
     }
 }
-
@@ -0,0 +1,58 @@
+package com.erp.report.service.impl;
+
+import com.erp.common.service.ClusterNotifier;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Sales cube changes sent to the other nodes. Every node publishes them, whether or
+ * not it runs the cube itself, so a reporting node with the cube learns of the
+ * sales made everywhere.
+ * A message either lists created sales, "S:id,id,...", which the receiver reads
+ * from the database, or names a cancelled sale and its day, "C:id:epochDay".
+ */
+final class SalesCubeMessages {
+
+    static final String CHANNEL = "sales_cube";
+
+    private static final String SALES = "S:";
+    private static final String CANCELLATION = "C:";
+    // Keeps each message well under the notification payload limit
+    private static final int IDS_PER_MESSAGE = 500;
+
+    private SalesCubeMessages() {
+    }
+
+    static void publishSales(ClusterNotifier clusterNotifier, List<Long> saleIds) {
+        for (int from = 0; from < saleIds.size(); from += IDS_PER_MESSAGE) {
+            List<Long> ids = saleIds.subList(from, Math.min(from + IDS_PER_MESSAGE, saleIds.size()));
+            clusterNotifier.publish(CHANNEL, SALES + ids.stream().map(String::valueOf)
+                    .collect(Collectors.joining(",")));
+        }
+    }
+
+    static void publishCancellation(ClusterNotifier clusterNotifier, long saleId, LocalDate saleDay) {
+        clusterNotifier.publish(CHANNEL, CANCELLATION + saleId + ":" + saleDay.toEpochDay());
+    }
+
+    /**
+     * Passes the created sale IDs or the cancelled sale and its day of a message on.
+     */
+    static void dispatch(String payload, Consumer<List<Long>> sales, BiConsumer<Long, LocalDate> cancellation) {
+        if (payload.startsWith(SALES)) {
+            sales.accept(Arrays.stream(payload.substring(SALES.length()).split(","))
+                    .map(Long::valueOf)
+                    .toList());
+        } else if (payload.startsWith(CANCELLATION)) {
+            String[] sale = payload.substring(CANCELLATION.length()).split(":");
+            cancellation.accept(Long.valueOf(sale[0]), LocalDate.ofEpochDay(Long.parseLong(sale[1])));
+        } else {
+            throw new IllegalArgumentException("Unknown sales cube message: " + payload);
+        }
+    }
+}
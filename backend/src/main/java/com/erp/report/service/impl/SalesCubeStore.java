@@ -0,0 +1,375 @@
+package com.erp.report.service.impl;
+
+import com.erp.report.dto.SalesCubeDimension;
+import com.erp.sales.entity.Sale;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Column store of completed sale items for the sales cube.
+ * Items are appended to fixed size chunks of primitive arrays, one array per column.
+ * Products, categories and cashiers are dictionary encoded to int codes; amounts are
+ * held in cents. A chunk publishes its rows through its volatile size, so queries
+ * scan without locking while a single writer appends. Chunks keep the range of sale
+ * days they hold, so queries skip chunks outside the requested dates.
+ * The items of a sale are appended together, which lets a cancellation find them
+ * with a scan backwards from the newest rows, skipping chunks without the sale's day.
+ */
+final class SalesCubeStore {
+
+    static final int HOURS = 24;
+
+    static final int CHUNK_SIZE = 1 << 16;
+    private static final String NO_CATEGORY = "";
+
+    private final Dictionary<Long> products = new Dictionary<>();
+    private final Dictionary<String> categories = new Dictionary<>();
+    private final Dictionary<Long> cashiers = new Dictionary<>();
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile long lines;
+
+    long lines() {
+        return lines;
+    }
+
+    /**
+     * Appends a sale item. Only one thread may write at a time.
+     */
+    void append(long saleId, long productId, String category, long cashierId, int paymentMethod,
+                LocalDateTime saleDate, int quantity, long cents) {
+        Chunk[] current = chunks;
+        Chunk chunk = current.length == 0 ? null : current[current.length - 1];
+        if (chunk == null || chunk.size == CHUNK_SIZE) {
+            chunk = new Chunk();
+            Chunk[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = chunk;
+            chunks = grown;
+        }
+
+        int row = chunk.size;
+        int day = (int) saleDate.toLocalDate().toEpochDay();
+        chunk.saleIds[row] = saleId;
+        chunk.products[row] = products.encode(productId);
+        chunk.categories[row] = categories.encode(category != null ? category : NO_CATEGORY);
+        chunk.cashiers[row] = cashiers.encode(cashierId);
+        chunk.paymentMethods[row] = (byte) paymentMethod;
+        chunk.hours[row] = (byte) saleDate.getHour();
+        chunk.days[row] = day;
+        chunk.quantities[row] = quantity;
+        chunk.cents[row] = cents;
+        if (row == 0 || day < chunk.minDay) {
+            chunk.minDay = day;
+        }
+        if (row == 0 || day > chunk.maxDay) {
+            chunk.maxDay = day;
+        }
+        // Publishes the row to queries
+        chunk.size = row + 1;
+        lines++;
+    }
+
+    /**
+     * Excludes the items of a sale from later queries. Only one thread may write at a time.
+     *
+     * @param day The sale's day, as an epoch day
+     * @return The number of items excluded
+     */
+    int cancel(long saleId, int day) {
+        int cancelled = 0;
+        Chunk[] current = chunks;
+        for (int c = current.length - 1; c >= 0; c--) {
+            Chunk chunk = current[c];
+            if (chunk.size == 0 || day < chunk.minDay || day > chunk.maxDay) {
+                if (cancelled > 0) {
+                    return cancelled;
+                }
+                continue;
+            }
+            for (int row = chunk.size - 1; row >= 0; row--) {
+                if (chunk.saleIds[row] == saleId) {
+                    chunk.cancelled[row] = true;
+                    cancelled++;
+                } else if (cancelled > 0) {
+                    return cancelled;
+                }
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * Tells whether a sale with items on or after the given day has been appended,
+     * scanning backwards from the newest rows until an older day is reached.
+     */
+    boolean containsSaleSince(long saleId, int sinceDay) {
+        Chunk[] current = chunks;
+        for (int c = current.length - 1; c >= 0; c--) {
+            Chunk chunk = current[c];
+            for (int row = chunk.size - 1; row >= 0; row--) {
+                if (chunk.saleIds[row] == saleId) {
+                    return true;
+                }
+                if (chunk.days[row] < sinceDay) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Number of distinct values of a dimension seen so far; the codes of the dimension
+     * run from zero to this. DAY has no dictionary and is not counted here.
+     */
+    int cardinality(SalesCubeDimension dimension) {
+        return switch (dimension) {
+            case PRODUCT -> products.size();
+            case CATEGORY -> categories.size();
+            case CASHIER -> cashiers.size();
+            case PAYMENT_METHOD -> Sale.PaymentMethod.values().length;
+            case HOUR -> HOURS;
+            case DAY -> throw new IllegalArgumentException("DAY is not dictionary encoded");
+        };
+    }
+
+    int productCode(long productId) {
+        return products.code(productId);
+    }
+
+    int categoryCode(String category) {
+        return categories.code(category);
+    }
+
+    int cashierCode(long cashierId) {
+        return cashiers.code(cashierId);
+    }
+
+    long productId(int code) {
+        return products.value(code);
+    }
+
+    String category(int code) {
+        String category = categories.value(code);
+        return NO_CATEGORY.equals(category) ? null : category;
+    }
+
+    long cashierId(int code) {
+        return cashiers.value(code);
+    }
+
+    /**
+     * Adds up the items that pass the scan's filters, per group. Chunks are scanned
+     * in parallel and their partial totals added together.
+     */
+    GroupTotals scan(Scan scan) {
+        return Arrays.stream(chunks)
+                .parallel()
+                .filter(chunk -> chunk.size > 0 && chunk.maxDay >= scan.fromDay() && chunk.minDay <= scan.toDay())
+                .map(chunk -> scanChunk(chunk, scan))
+                .reduce((left, right) -> {
+                    left.addAll(right);
+                    return left;
+                })
+                .orElseGet(GroupTotals::new);
+    }
+
+    private static GroupTotals scanChunk(Chunk chunk, Scan scan) {
+        GroupTotals totals = new GroupTotals();
+        SalesCubeDimension[] groupBy = scan.groupBy();
+        int[] radices = scan.radices();
+        // Only the filtered dimensions are checked per row
+        SalesCubeDimension[] filtered = Arrays.stream(SalesCubeDimension.values())
+                .filter(dimension -> scan.filters()[dimension.ordinal()] != null)
+                .toArray(SalesCubeDimension[]::new);
+        boolean[][] allowedCodes = Arrays.stream(filtered)
+                .map(dimension -> scan.filters()[dimension.ordinal()])
+                .toArray(boolean[][]::new);
+        int size = chunk.size;
+
+        rows:
+        for (int row = 0; row < size; row++) {
+            int day = chunk.days[row];
+            if (day < scan.fromDay() || day > scan.toDay() || chunk.cancelled[row]) {
+                continue;
+            }
+            for (int f = 0; f < filtered.length; f++) {
+                int code = chunk.code(filtered[f], row, scan.fromDay());
+                if (code >= allowedCodes[f].length || !allowedCodes[f][code]) {
+                    continue rows;
+                }
+            }
+            long key = 0;
+            for (int d = 0; d < groupBy.length; d++) {
+                int code = chunk.code(groupBy[d], row, scan.fromDay());
+                if (code >= radices[d]) {
+                    // A value added after the query started
+                    continue rows;
+                }
+                key = key * radices[d] + code;
+            }
+            totals.add(key, 1, chunk.quantities[row], chunk.cents[row]);
+        }
+        return totals;
+    }
+
+    /**
+     * What a query scans for.
+     *
+     * @param fromDay First sale day, as an epoch day
+     * @param toDay   Last sale day, as an epoch day
+     * @param groupBy Dimensions to group by; a group key packs their codes in this order
+     * @param radices Number of codes of each groupBy dimension
+     * @param filters Allowed codes per dimension ordinal, or null where a dimension is not filtered
+     */
+    record Scan(int fromDay, int toDay, SalesCubeDimension[] groupBy, int[] radices, boolean[][] filters) {
+    }
+
+    private static final class Chunk {
+
+        private final long[] saleIds = new long[CHUNK_SIZE];
+        private final int[] products = new int[CHUNK_SIZE];
+        private final int[] categories = new int[CHUNK_SIZE];
+        private final int[] cashiers = new int[CHUNK_SIZE];
+        private final byte[] paymentMethods = new byte[CHUNK_SIZE];
+        private final byte[] hours = new byte[CHUNK_SIZE];
+        private final int[] days = new int[CHUNK_SIZE];
+        private final int[] quantities = new int[CHUNK_SIZE];
+        private final long[] cents = new long[CHUNK_SIZE];
+        // Set after publication; a query may still count a sale cancelled while it runs
+        private final boolean[] cancelled = new boolean[CHUNK_SIZE];
+        private volatile int minDay;
+        private volatile int maxDay;
+        private volatile int size;
+
+        private int code(SalesCubeDimension dimension, int row, int fromDay) {
+            return switch (dimension) {
+                case PRODUCT -> products[row];
+                case CATEGORY -> categories[row];
+                case CASHIER -> cashiers[row];
+                case PAYMENT_METHOD -> paymentMethods[row];
+                case HOUR -> hours[row];
+                case DAY -> days[row] - fromDay;
+            };
+        }
+    }
+
+    /**
+     * Maps values to dense int codes. Written by one thread, read by any.
+     */
+    private static final class Dictionary<T> {
+
+        private final Map<T, Integer> codes = new ConcurrentHashMap<>();
+        private volatile Object[] values = new Object[16];
+        private volatile int size;
+
+        private int encode(T value) {
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            int next = size;
+            if (next == values.length) {
+                values = Arrays.copyOf(values, next * 2);
+            }
+            values[next] = value;
+            codes.put(value, next);
+            size = next + 1;
+            return next;
+        }
+
+        private int code(T value) {
+            return codes.getOrDefault(value, -1);
+        }
+
+        @SuppressWarnings("unchecked")
+        private T value(int code) {
+            return (T) values[code];
+        }
+
+        private int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Item count, quantity and cents per group key, in parallel arrays indexed through
+     * an open addressing table.
+     */
+    static final class GroupTotals {
+
+        private long[] keys = new long[16];
+        private long[] lineCounts = new long[16];
+        private long[] quantities = new long[16];
+        private long[] cents = new long[16];
+        private int size;
+        // Index into the arrays above plus one; zero marks a free slot
+        private int[] slots = new int[32];
+
+        int size() {
+            return size;
+        }
+
+        long key(int index) {
+            return keys[index];
+        }
+
+        long lines(int index) {
+            return lineCounts[index];
+        }
+
+        long quantity(int index) {
+            return quantities[index];
+        }
+
+        long cents(int index) {
+            return cents[index];
+        }
+
+        void add(long key, long lines, long quantity, long amount) {
+            int slot = findSlot(key);
+            int index = slots[slot] - 1;
+            if (index < 0) {
+                if (size == keys.length) {
+                    grow();
+                    slot = findSlot(key);
+                }
+                index = size++;
+                keys[index] = key;
+                slots[slot] = index + 1;
+            }
+            lineCounts[index] += lines;
+            quantities[index] += quantity;
+            cents[index] += amount;
+        }
+
+        void addAll(GroupTotals other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.keys[i], other.lineCounts[i], other.quantities[i], other.cents[i]);
+            }
+        }
+
+        private int findSlot(long key) {
+            int mask = slots.length - 1;
+            int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (slots[slot] != 0 && keys[slots[slot] - 1] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            lineCounts = Arrays.copyOf(lineCounts, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            cents = Arrays.copyOf(cents, capacity);
+            slots = new int[capacity * 2];
+            for (int i = 0; i < size; i++) {
+                slots[findSlot(keys[i])] = i + 1;
+            }
+        }
+    }
+}
@@ -1,11 +1,17 @@
 package com.erp.sales.controller;
 
-import com.erp.auth.entity.User;
-import com.erp.auth.repository.UserRepository;
+import com.erp.auth.security.UserPrincipal;
 import com.erp.common.dto.ApiResponse;
+import com.erp.common.dto.CursorResponse;
 import com.erp.common.dto.PagedResponse;
+import com.erp.sales.dto.SaleImportFormat;
+import com.erp.sales.dto.SaleImportResult;
 import com.erp.sales.dto.SaleRequest;
 import com.erp.sales.dto.SaleResponse;
+import com.erp.sales.dto.SaleSearchCriteria;
+import com.erp.sales.service.SaleExportService;
+import com.erp.sales.service.SaleIdempotencyService;
+import com.erp.sales.service.SaleImportService;
 import com.erp.sales.service.SaleService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -16,11 +22,14 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.time.LocalDate;
 
 /**
@@ -34,20 +43,49 @@ import java.time.LocalDate;
 public class SaleController {
 
     private final SaleService saleService;
-    private final UserRepository userRepository;
+    private final SaleImportService saleImportService;
+    private final SaleExportService saleExportService;
+    private final SaleIdempotencyService saleIdempotencyService;
 
     @PostMapping
-    @Operation(summary = "Create sale", description = "Create a new sale transaction")
+    @Operation(summary = "Create sale", description = "Create a new sale transaction. "
+            + "Retries sent with the same Idempotency-Key header return the original sale; 409 while it is "
+            + "still being created, 422 if the key was used for a different sale.")
     public ResponseEntity<ApiResponse<SaleResponse>> createSale(
             @Valid @RequestBody SaleRequest request,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        User user = userRepository.findByUsername(userDetails.getUsername())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        SaleResponse sale = saleService.createSale(request, user.getId());
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @AuthenticationPrincipal UserPrincipal cashier) {
+        SaleResponse sale = idempotencyKey != null
+                ? saleIdempotencyService.createSale(idempotencyKey, request, cashier)
+                : saleService.createSale(request, cashier);
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(ApiResponse.success("Sale created successfully", sale));
     }
 
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson", MediaType.TEXT_PLAIN_VALUE,
+            MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Import sales", description = "Bulk import historical sales from a CSV or NDJSON upload")
+    public ResponseEntity<ApiResponse<SaleImportResult>> importSales(
+            @RequestParam(defaultValue = "CSV") SaleImportFormat format,
+            InputStream body) {
+        SaleImportResult result = saleImportService.importSales(format, body);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success("Sales imported successfully", result));
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    @Operation(summary = "Export sales", description = "Stream all sales within a date range as NDJSON, oldest first")
+    public ResponseEntity<StreamingResponseBody> exportSales(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        StreamingResponseBody body = output -> saleExportService.exportSales(startDate, endDate, output);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get sale by ID", description = "Retrieve a sale by its ID")
     public ResponseEntity<ApiResponse<SaleResponse>> getSaleById(@PathVariable Long id) {
@@ -89,6 +127,40 @@ public class SaleController {
         return ResponseEntity.ok(ApiResponse.success(PagedResponse.from(sales)));
     }
 
+    @GetMapping("/cursor")
+    @Operation(summary = "Get sales by cursor", description = "Retrieve sales newest first, optionally within "
+            + "a date range, using the cursors of the previous response instead of page numbers. "
+            + "size is 1 to 100.")
+    public ResponseEntity<ApiResponse<CursorResponse<SaleResponse>>> getSalesByCursor(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        CursorResponse<SaleResponse> sales = saleService.getSalesByCursor(startDate, endDate, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success(sales));
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Search sales", description = "Find sales by part of the customer's phone or name, "
+            + "the start of the sale number, or a product SKU on the sale, newest first. "
+            + "size is 1 to 50.")
+    public ResponseEntity<ApiResponse<CursorResponse<SaleResponse>>> searchSales(
+            @RequestParam(required = false) String customerPhone,
+            @RequestParam(required = false) String customerName,
+            @RequestParam(required = false) String saleNumber,
+            @RequestParam(required = false) String productSku,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        SaleSearchCriteria criteria = SaleSearchCriteria.builder()
+                .customerPhone(customerPhone)
+                .customerName(customerName)
+                .saleNumberPrefix(saleNumber)
+                .productSku(productSku)
+                .build();
+        CursorResponse<SaleResponse> sales = saleService.searchSales(criteria, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success(sales));
+    }
+
     @PostMapping("/{id}/cancel")
     @Operation(summary = "Cancel sale", description = "Cancel an existing sale")
     public ResponseEntity<ApiResponse<SaleResponse>> cancelSale(@PathVariable Long id) {
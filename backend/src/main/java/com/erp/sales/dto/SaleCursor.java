@@ -0,0 +1,54 @@
+package com.erp.sales.dto;
+
+import com.erp.common.exception.BadRequestException;
+import com.erp.sales.entity.Sale;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the sales history, ordered by sale date and ID, newest first.
+ * Clients receive it as an opaque string and send it back to fetch the sales
+ * older or newer than the sale it points at.
+ */
+public record SaleCursor(Direction direction, LocalDateTime saleDate, Long id) {
+
+    public enum Direction {
+        OLDER,
+        NEWER
+    }
+
+    /**
+     * Cursor to the sales older than the given sale.
+     */
+    public static SaleCursor olderThan(Sale sale) {
+        return new SaleCursor(Direction.OLDER, sale.getSaleDate(), sale.getId());
+    }
+
+    /**
+     * Cursor to the sales newer than the given sale.
+     */
+    public static SaleCursor newerThan(Sale sale) {
+        return new SaleCursor(Direction.NEWER, sale.getSaleDate(), sale.getId());
+    }
+
+    public String encode() {
+        String value = direction.name() + "|" + saleDate + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SaleCursor decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = value.split("\\|");
+            if (parts.length != 3) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new SaleCursor(Direction.valueOf(parts[0]), LocalDateTime.parse(parts[1]), Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new BadRequestException("Invalid cursor", ex);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.erp.sales.dto;
+
+/**
+ * Upload formats accepted by the bulk sale import.
+ */
+public enum SaleImportFormat {
+
+    /**
+     * One line per sale item with a header row. The sale columns repeat on every
+     * line of the same sale: sale_number, sale_date, cashier, customer_name,
+     * customer_phone, payment_method, status, tax_amount, discount_amount,
+     * product_sku, quantity, unit_price, discount_percent.
+     */
+    CSV,
+
+    /**
+     * One JSON sale per line, shaped like a sale request plus saleNumber, saleDate,
+     * cashier and status, with items carrying productSku and unitPrice.
+     */
+    NDJSON
+}
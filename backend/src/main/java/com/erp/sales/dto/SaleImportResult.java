@@ -0,0 +1,21 @@
+package com.erp.sales.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for the outcome of a bulk sale import.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaleImportResult {
+
+    private SaleImportFormat format;
+    private long salesImported;
+    private long itemsImported;
+    private long durationMs;
+}
@@ -42,11 +42,19 @@ public class SaleResponse {
      * Creates a SaleResponse from a Sale entity.
      */
     public static SaleResponse fromEntity(Sale sale) {
+        return fromEntity(sale, sale.getUser().getFullName());
+    }
+
+    /**
+     * Creates a SaleResponse from a Sale entity whose user's name is already known,
+     * so an unloaded user reference is not loaded.
+     */
+    public static SaleResponse fromEntity(Sale sale, String userName) {
         return SaleResponse.builder()
                 .id(sale.getId())
                 .saleNumber(sale.getSaleNumber())
                 .userId(sale.getUser().getId())
-                .userName(sale.getUser().getFullName())
+                .userName(userName)
                 .customerName(sale.getCustomerName())
                 .customerPhone(sale.getCustomerPhone())
                 .items(sale.getItems().stream()
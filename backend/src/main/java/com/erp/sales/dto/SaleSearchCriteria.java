@@ -0,0 +1,29 @@
+package com.erp.sales.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters for listing and searching sales. Null fields do not filter.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaleSearchCriteria {
+
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    /** Part of the customer's phone number */
+    private String customerPhone;
+    /** Part of the customer's name, case-insensitive */
+    private String customerName;
+    /** Start of the sale number */
+    private String saleNumberPrefix;
+    /** Exact SKU of a product on the sale */
+    private String productSku;
+}
@@ -0,0 +1,33 @@
+package com.erp.sales.dto;
+
+import com.erp.sales.entity.Sale;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Projection of a sale's header fields and item count, for listings that need
+ * one row per sale without loading the entity or its items.
+ */
+public interface SaleSummaryRow {
+
+    String getSaleNumber();
+
+    LocalDateTime getSaleDate();
+
+    String getCustomerName();
+
+    Long getItemCount();
+
+    BigDecimal getSubtotal();
+
+    BigDecimal getTaxAmount();
+
+    BigDecimal getDiscountAmount();
+
+    BigDecimal getTotalAmount();
+
+    Sale.PaymentMethod getPaymentMethod();
+
+    Sale.SaleStatus getStatus();
+}
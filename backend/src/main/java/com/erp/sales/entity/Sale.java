@@ -23,6 +23,12 @@ import java.util.List;
 @Builder
 public class Sale extends BaseEntity {
 
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sale_id_generator")
+    @SequenceGenerator(name = "sale_id_generator", sequenceName = "sales_id_seq",
+            allocationSize = ID_ALLOCATION_SIZE)
+    private Long id;
+
     @Column(name = "sale_number", nullable = false, unique = true, length = 20)
     private String saleNumber;
 
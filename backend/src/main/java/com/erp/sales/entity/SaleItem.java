@@ -1,6 +1,7 @@
 package com.erp.sales.entity;
 
 import com.erp.common.entity.BaseEntity;
+import com.erp.common.money.Money;
 import com.erp.product.entity.Product;
 import jakarta.persistence.*;
 import lombok.*;
@@ -20,6 +21,12 @@ import java.math.BigDecimal;
 @Builder
 public class SaleItem extends BaseEntity {
 
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sale_item_id_generator")
+    @SequenceGenerator(name = "sale_item_id_generator", sequenceName = "sale_items_id_seq",
+            allocationSize = ID_ALLOCATION_SIZE)
+    private Long id;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sale_id", nullable = false)
     private Sale sale;
@@ -49,16 +56,14 @@ public class SaleItem extends BaseEntity {
 
     /**
      * Calculates the line total based on quantity, unit price, and discount.
+     * The total is rounded to cents, half up, so it matches the stored value.
+     *
+     * @return The line total, for adding up the sale
      */
-    public void calculateLineTotal() {
-        BigDecimal gross = unitPrice.multiply(BigDecimal.valueOf(quantity));
-        if (discountPercent != null && discountPercent.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal discountMultiplier = BigDecimal.ONE.subtract(
-                    discountPercent.divide(BigDecimal.valueOf(100)));
-            this.lineTotal = gross.multiply(discountMultiplier);
-        } else {
-            this.lineTotal = gross;
-        }
+    public Money calculateLineTotal() {
+        Money total = Money.of(unitPrice).times(quantity).lessPercent(discountPercent);
+        this.lineTotal = total.toBigDecimal();
+        return total;
     }
 }
 
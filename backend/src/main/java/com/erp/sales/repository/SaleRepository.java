@@ -1,39 +1,75 @@
 package com.erp.sales.repository;
 
+import com.erp.sales.dto.SaleSummaryRow;
 import com.erp.sales.entity.Sale;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Sale entity.
  * Provides database operations for sales management.
+ * Listing queries fetch the user with the sales; their items are then loaded
+ * for the whole page with {@link #fetchItems}, so a page costs a fixed number
+ * of statements.
  */
 @Repository
-public interface SaleRepository extends JpaRepository<Sale, Long> {
+public interface SaleRepository extends JpaRepository<Sale, Long>, SaleRepositoryCustom {
+
+    /**
+     * Rows fetched per round trip by streaming queries.
+     */
+    int STREAM_FETCH_SIZE = 500;
 
     /**
      * Finds a sale by sale number.
      */
     Optional<Sale> findBySaleNumber(String saleNumber);
 
+    /**
+     * Finds a sale by ID together with its user and items, in one query.
+     */
+    @EntityGraph(attributePaths = {"user", "items"})
+    Optional<Sale> findWithDetailsById(Long id);
+
+    /**
+     * Finds a sale by sale number together with its user and items, in one query.
+     */
+    @EntityGraph(attributePaths = {"user", "items"})
+    Optional<Sale> findWithDetailsBySaleNumber(String saleNumber);
+
+    /**
+     * Finds all sales with pagination, together with their users.
+     */
+    @Override
+    @EntityGraph(attributePaths = "user")
+    Page<Sale> findAll(Pageable pageable);
+
     /**
      * Finds sales by user ID.
      */
+    @EntityGraph(attributePaths = "user")
     Page<Sale> findByUserId(Long userId, Pageable pageable);
 
     /**
      * Finds sales within a date range.
      */
-    @Query("SELECT s FROM Sale s WHERE s.saleDate BETWEEN :startDate AND :endDate")
+    @Query("SELECT DISTINCT s FROM Sale s JOIN FETCH s.user LEFT JOIN FETCH s.items " +
+            "WHERE s.saleDate BETWEEN :startDate AND :endDate")
     List<Sale> findSalesBetweenDates(
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
@@ -42,15 +78,47 @@ public interface SaleRepository extends JpaRepository<Sale, Long> {
      * Finds sales within a date range with pagination.
      */
     @Query("SELECT s FROM Sale s WHERE s.saleDate BETWEEN :startDate AND :endDate")
+    @EntityGraph(attributePaths = "user")
     Page<Sale> findSalesBetweenDates(
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate,
             Pageable pageable);
 
     /**
-     * Finds the last sale number.
+     * Streams sales within a date range, oldest first, as rows with their item count.
+     * Items are counted in the database, so no entities are loaded. Rows are read from
+     * a server-side cursor, so the stream must be consumed and closed within a transaction.
+     */
+    @Query("SELECT s.saleNumber AS saleNumber, s.saleDate AS saleDate, s.customerName AS customerName, " +
+            "(SELECT COUNT(i) FROM SaleItem i WHERE i.sale = s) AS itemCount, s.subtotal AS subtotal, " +
+            "s.taxAmount AS taxAmount, s.discountAmount AS discountAmount, s.totalAmount AS totalAmount, " +
+            "s.paymentMethod AS paymentMethod, s.status AS status " +
+            "FROM Sale s WHERE s.saleDate BETWEEN :startDate AND :endDate ORDER BY s.saleDate, s.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    Stream<SaleSummaryRow> streamSummaryRowsBetweenDates(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Streams sales within a date range, oldest first, together with their users.
+     * Rows are read from a server-side cursor, so the stream must be consumed and
+     * closed within a transaction.
+     */
+    @Query("SELECT s FROM Sale s JOIN FETCH s.user " +
+            "WHERE s.saleDate BETWEEN :startDate AND :endDate ORDER BY s.saleDate, s.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Sale> streamSalesBetweenDates(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Loads the items of the given sales in one query. The sales are already in the
+     * persistence context, so their item collections are initialized in place.
      */
-    @Query("SELECT s.saleNumber FROM Sale s ORDER BY s.id DESC LIMIT 1")
-    Optional<String> findLastSaleNumber();
+    @Query("SELECT DISTINCT s FROM Sale s LEFT JOIN FETCH s.items WHERE s.id IN :ids")
+    List<Sale> fetchItems(@Param("ids") Collection<Long> ids);
 }
 
@@ -0,0 +1,26 @@
+package com.erp.sales.repository;
+
+import com.erp.sales.dto.SaleCursor;
+import com.erp.sales.dto.SaleSearchCriteria;
+import com.erp.sales.entity.Sale;
+
+import java.util.List;
+
+/**
+ * Custom repository operations for Sale entity.
+ * Covers keyset pagination with optional filters, which Spring Data queries cannot express.
+ */
+public interface SaleRepositoryCustom {
+
+    /**
+     * Finds sales next to a cursor, ordered by sale date and ID, newest first, together
+     * with their users. Seeks on the (sale_date, id) index, so the cost does not grow
+     * with the position in the history. Text filters are served by the search indexes.
+     *
+     * @param criteria Filters to apply
+     * @param cursor   Sales to return relative to the cursor, or null for the newest sales
+     * @param limit    Maximum number of sales to return
+     * @return The sales, newest first
+     */
+    List<Sale> findByKeyset(SaleSearchCriteria criteria, SaleCursor cursor, int limit);
+}
@@ -0,0 +1,84 @@
+package com.erp.sales.repository;
+
+import com.erp.sales.dto.SaleCursor;
+import com.erp.sales.dto.SaleSearchCriteria;
+import com.erp.sales.entity.Sale;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JPQL implementation of SaleRepositoryCustom.
+ */
+@RequiredArgsConstructor
+public class SaleRepositoryCustomImpl implements SaleRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<Sale> findByKeyset(SaleSearchCriteria criteria, SaleCursor cursor, int limit) {
+        boolean newer = cursor != null && cursor.direction() == SaleCursor.Direction.NEWER;
+
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        if (criteria.getStartDate() != null) {
+            conditions.add("s.saleDate >= :startDate");
+            parameters.put("startDate", criteria.getStartDate());
+        }
+        if (criteria.getEndDate() != null) {
+            conditions.add("s.saleDate <= :endDate");
+            parameters.put("endDate", criteria.getEndDate());
+        }
+        // Substring matches use the trigram indexes, the prefix match the pattern index
+        if (criteria.getCustomerPhone() != null) {
+            conditions.add("s.customerPhone LIKE :customerPhone ESCAPE '\\'");
+            parameters.put("customerPhone", "%" + escapeLike(criteria.getCustomerPhone()) + "%");
+        }
+        if (criteria.getCustomerName() != null) {
+            conditions.add("s.customerName ILIKE :customerName ESCAPE '\\'");
+            parameters.put("customerName", "%" + escapeLike(criteria.getCustomerName()) + "%");
+        }
+        if (criteria.getSaleNumberPrefix() != null) {
+            conditions.add("s.saleNumber LIKE :saleNumberPrefix ESCAPE '\\'");
+            parameters.put("saleNumberPrefix", escapeLike(criteria.getSaleNumberPrefix()) + "%");
+        }
+        if (criteria.getProductSku() != null) {
+            conditions.add("EXISTS (SELECT 1 FROM SaleItem i WHERE i.sale = s AND i.productSku = :productSku)");
+            parameters.put("productSku", criteria.getProductSku());
+        }
+        if (cursor != null) {
+            // Row value comparison, so the database seeks straight to the key in the index
+            conditions.add(newer ? "(s.saleDate, s.id) > (:saleDate, :id)" : "(s.saleDate, s.id) < (:saleDate, :id)");
+            parameters.put("saleDate", cursor.saleDate());
+            parameters.put("id", cursor.id());
+        }
+
+        StringBuilder jpql = new StringBuilder("SELECT s FROM Sale s JOIN FETCH s.user");
+        if (!conditions.isEmpty()) {
+            jpql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        // Newer sales are read upwards from the cursor and then reversed
+        jpql.append(newer ? " ORDER BY s.saleDate ASC, s.id ASC" : " ORDER BY s.saleDate DESC, s.id DESC");
+
+        TypedQuery<Sale> query = entityManager.createQuery(jpql.toString(), Sale.class)
+                .setMaxResults(limit);
+        parameters.forEach(query::setParameter);
+
+        List<Sale> sales = query.getResultList();
+        if (newer) {
+            sales = new ArrayList<>(sales);
+            Collections.reverse(sales);
+        }
+        return sales;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,21 @@
+package com.erp.sales.service;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+/**
+ * Service interface for exporting sales in bulk.
+ */
+public interface SaleExportService {
+
+    /**
+     * Writes the sales within a date range as NDJSON, one sale response per line,
+     * oldest first. Sales are read with a database cursor and written as they arrive,
+     * so memory use does not grow with the size of the range.
+     *
+     * @param startDate The first day of the range
+     * @param endDate   The last day of the range
+     * @param output    The stream the lines are written to; left open
+     */
+    void exportSales(LocalDate startDate, LocalDate endDate, OutputStream output);
+}
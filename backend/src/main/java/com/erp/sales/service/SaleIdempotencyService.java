@@ -0,0 +1,25 @@
+package com.erp.sales.service;
+
+import com.erp.auth.security.UserPrincipal;
+import com.erp.sales.dto.SaleRequest;
+import com.erp.sales.dto.SaleResponse;
+
+/**
+ * Service interface for sale submissions that carry an idempotency key.
+ */
+public interface SaleIdempotencyService {
+
+    /**
+     * Creates a sale at most once per user and idempotency key.
+     * A repeated key returns the sale created by the first request. A duplicate that
+     * arrives while the first request is still running waits for its outcome, and gets
+     * HTTP 409 if it is not done within the wait timeout. A key reused with a different
+     * request gets HTTP 422.
+     *
+     * @param idempotencyKey The key chosen by the client for this checkout
+     * @param request        The sale request data
+     * @param cashier        The authenticated user creating the sale
+     * @return The created or previously created sale response
+     */
+    SaleResponse createSale(String idempotencyKey, SaleRequest request, UserPrincipal cashier);
+}
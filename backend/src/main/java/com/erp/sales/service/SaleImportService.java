@@ -0,0 +1,24 @@
+package com.erp.sales.service;
+
+import com.erp.sales.dto.SaleImportFormat;
+import com.erp.sales.dto.SaleImportResult;
+
+import java.io.InputStream;
+
+/**
+ * Service interface for bulk loading historical sales.
+ */
+public interface SaleImportService {
+
+    /**
+     * Imports completed sales from an upload in a single transaction.
+     * The whole upload is rejected if any line fails validation.
+     * Stock quantities are not touched, since the sales already happened; the daily
+     * report rollups are updated.
+     *
+     * @param format The upload format
+     * @param input  The upload, read once as a stream
+     * @return The number of imported sales and items
+     */
+    SaleImportResult importSales(SaleImportFormat format, InputStream input);
+}
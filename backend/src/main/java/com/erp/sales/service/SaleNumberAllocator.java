@@ -0,0 +1,18 @@
+package com.erp.sales.service;
+
+import java.time.LocalDate;
+
+/**
+ * Allocates unique sale numbers.
+ * Numbers follow the SL{yyyyMMdd}{sequence} format and restart every day.
+ */
+public interface SaleNumberAllocator {
+
+    /**
+     * Returns the next sale number for the given sale day.
+     *
+     * @param saleDay The business day of the sale
+     * @return A sale number that no other sale or node has received
+     */
+    String nextSaleNumber(LocalDate saleDay);
+}
@@ -0,0 +1,36 @@
+package com.erp.sales.service;
+
+import com.erp.sales.dto.SaleResponse;
+
+import java.util.function.Supplier;
+
+/**
+ * Cache of sale responses for lookups by ID and by sale number.
+ * Sales rarely change once created, so a response stays cached until the sale is
+ * changed through {@link #invalidate}, it is evicted for space, or its TTL runs out.
+ */
+public interface SaleResponseCache {
+
+    /**
+     * Returns the cached response for a sale ID, or loads and caches it.
+     *
+     * @param id     The sale ID
+     * @param loader Loads the response; exceptions are passed on and nothing is cached
+     */
+    SaleResponse getById(Long id, Supplier<SaleResponse> loader);
+
+    /**
+     * Returns the cached response for a sale number, or loads and caches it.
+     *
+     * @param saleNumber The sale number
+     * @param loader     Loads the response; exceptions are passed on and nothing is cached
+     */
+    SaleResponse getBySaleNumber(String saleNumber, Supplier<SaleResponse> loader);
+
+    /**
+     * Called in the transaction that changes a sale. Evicts the sale right away and
+     * again after commit, so a response loaded before the commit is not kept.
+     * With cluster.notifications.enabled, other nodes evict it on commit too.
+     */
+    void invalidate(Long id, String saleNumber);
+}
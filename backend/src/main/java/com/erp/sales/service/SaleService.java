@@ -1,7 +1,10 @@
 package com.erp.sales.service;
 
+import com.erp.auth.security.UserPrincipal;
+import com.erp.common.dto.CursorResponse;
 import com.erp.sales.dto.SaleRequest;
 import com.erp.sales.dto.SaleResponse;
+import com.erp.sales.dto.SaleSearchCriteria;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -18,10 +21,10 @@ public interface SaleService {
      * Creates a new sale.
      *
      * @param request The sale request data
-     * @param userId  The ID of the user creating the sale
+     * @param cashier The authenticated user creating the sale
      * @return The created sale response
      */
-    SaleResponse createSale(SaleRequest request, Long userId);
+    SaleResponse createSale(SaleRequest request, UserPrincipal cashier);
 
     /**
      * Retrieves a sale by ID.
@@ -53,6 +56,27 @@ public interface SaleService {
      */
     Page<SaleResponse> getSalesByDateRange(LocalDate startDate, LocalDate endDate, Pageable pageable);
 
+    /**
+     * Retrieves sales newest first, one page at a time, without counting all sales.
+     *
+     * @param startDate Earliest sale date, or null for no lower bound
+     * @param endDate   Latest sale date, or null for no upper bound
+     * @param cursor    Cursor from a previous page, or null for the newest sales
+     * @param size      Number of sales per page
+     */
+    CursorResponse<SaleResponse> getSalesByCursor(LocalDate startDate, LocalDate endDate, String cursor, int size);
+
+    /**
+     * Searches sales by customer phone, customer name, sale number prefix or product SKU,
+     * newest first, one page at a time. At least one of these must be given; phone and
+     * name need at least three characters.
+     *
+     * @param criteria The search filters
+     * @param cursor   Cursor from a previous page, or null for the newest matches
+     * @param size     Number of sales per page
+     */
+    CursorResponse<SaleResponse> searchSales(SaleSearchCriteria criteria, String cursor, int size);
+
     /**
      * Cancels a sale.
      */
@@ -0,0 +1,20 @@
+package com.erp.sales.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs sale writes in a database transaction.
+ * The default implementation commits each write on its own; with
+ * sales.group-commit.enabled, writes from many requests share one commit.
+ */
+public interface SaleWriteExecutor {
+
+    /**
+     * Runs the write in a transaction and returns its result. A caller that is
+     * already in a transaction runs the write in that transaction.
+     *
+     * @param write The work to run, such as creating one sale
+     * @return The result of the write
+     */
+    <T> T execute(Supplier<T> write);
+}
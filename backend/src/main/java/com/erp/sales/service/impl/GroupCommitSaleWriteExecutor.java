@@ -0,0 +1,312 @@
+package com.erp.sales.service.impl;
+
+import com.erp.common.exception.ServiceUnavailableException;
+import com.erp.sales.service.SaleWriteExecutor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Savepoint;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * SaleWriteExecutor that commits writes from many requests together.
+ * Callers put their write on a bounded queue and wait. Writer threads take up to
+ * max-batch-size writes, or whatever arrived within max-wait of the first one, and
+ * run them in one transaction with a savepoint per write, so a failing sale is rolled
+ * back alone and only its caller sees the error. Transaction synchronizations the
+ * failed write registered are completed as rolled back right away, so compensations
+ * such as giving back in-memory stock run, and are dropped, so their after-commit
+ * work does not run when the batch commits. One commit then covers the batch.
+ * Writes that lose a lock conflict, and all writes of a batch whose commit fails,
+ * are run again in their own transaction.
+ * With more than one writer, batches can deadlock on shared products; the loser
+ * is retried alone, but one writer is the safe choice for hot items.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "sales.group-commit", name = "enabled", havingValue = "true")
+public class GroupCommitSaleWriteExecutor implements SaleWriteExecutor {
+
+    private final TransactionTemplate transaction;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final BlockingQueue<PendingWrite<?>> queue;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final Duration offerTimeout;
+    private final int writerCount;
+    private final ExecutorService writers;
+
+    private final DistributionSummary batchSize;
+    private final Timer queueWait;
+    private final Counter rejected;
+
+    private volatile boolean running = true;
+
+    public GroupCommitSaleWriteExecutor(
+            PlatformTransactionManager transactionManager,
+            JdbcTemplate jdbcTemplate,
+            EntityManager entityManager,
+            MeterRegistry meterRegistry,
+            @Value("${sales.group-commit.max-batch-size:50}") int maxBatchSize,
+            @Value("${sales.group-commit.max-wait:5ms}") Duration maxWait,
+            @Value("${sales.group-commit.queue-capacity:1000}") int queueCapacity,
+            @Value("${sales.group-commit.offer-timeout:100ms}") Duration offerTimeout,
+            @Value("${sales.group-commit.writers:1}") int writerCount) {
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.offerTimeout = offerTimeout;
+        this.writerCount = writerCount;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(writerCount,
+                runnable -> new Thread(runnable, "sale-writer-" + threadNumber.incrementAndGet()));
+
+        this.batchSize = DistributionSummary.builder("sales.commit.batch.size")
+                .description("Sales committed per group commit")
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("sales.commit.queue.wait")
+                .description("Time a sale waited in the group commit queue")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("sales.commit.rejected")
+                .description("Sales rejected because the group commit queue was full")
+                .register(meterRegistry);
+        Gauge.builder("sales.commit.queue.size", queue, BlockingQueue::size)
+                .description("Sales waiting in the group commit queue")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < writerCount; i++) {
+            writers.execute(this::runWriter);
+        }
+        log.info("Group commit enabled with {} writer(s), batches of up to {} sales", writerCount, maxBatchSize);
+    }
+
+    /**
+     * Stops taking new writes and lets the writers finish what is already queued.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writers.shutdown();
+        if (!writers.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Group commit writers did not finish in time");
+        }
+        PendingWrite<?> write;
+        while ((write = queue.poll()) != null) {
+            write.fail(new ServiceUnavailableException("Server is shutting down, please retry"));
+        }
+    }
+
+    @Override
+    public <T> T execute(Supplier<T> write) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return write.get();
+        }
+
+        PendingWrite<T> pending = new PendingWrite<>(write);
+        try {
+            if (!running || !queue.offer(pending, offerTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new ServiceUnavailableException("Too many sales in progress, please retry");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while queueing the sale");
+        }
+        return pending.await();
+    }
+
+    private void runWriter() {
+        List<PendingWrite<?>> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    PendingWrite<?> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Group commit writer failed", ex);
+                batch.forEach(write -> write.fail(ex));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingWrite<?>> batch) {
+        long now = System.nanoTime();
+        for (PendingWrite<?> write : batch) {
+            queueWait.record(now - write.enqueuedAt, TimeUnit.NANOSECONDS);
+        }
+        batchSize.record(batch.size());
+
+        List<PendingWrite<?>> retries = new ArrayList<>();
+        try {
+            transaction.executeWithoutResult(status -> {
+                for (PendingWrite<?> write : batch) {
+                    try {
+                        runInSavepoint(write);
+                    } catch (TransientDataAccessException ex) {
+                        retries.add(write);
+                    } catch (RuntimeException ex) {
+                        write.fail(ex);
+                    } finally {
+                        // Keeps the persistence context to one sale, as with a transaction per sale
+                        entityManager.clear();
+                    }
+                }
+            });
+            batch.forEach(PendingWrite::complete);
+        } catch (RuntimeException ex) {
+            log.warn("Group commit of {} sales failed, committing them one by one: {}", batch.size(), ex.getMessage());
+            retries.clear();
+            batch.stream().filter(write -> !write.isDone()).forEach(retries::add);
+        }
+
+        for (PendingWrite<?> write : retries) {
+            try {
+                transaction.executeWithoutResult(status -> write.run());
+                write.complete();
+            } catch (RuntimeException ex) {
+                write.fail(ex);
+            }
+        }
+    }
+
+    /**
+     * Runs a write inside the batch transaction and rolls back only its own changes if it fails.
+     * Savepoints are set on the JDBC connection, since the JPA dialect does not offer nested
+     * transactions; the persistence context is cleared after every write instead.
+     */
+    private void runInSavepoint(PendingWrite<?> write) {
+        List<TransactionSynchronization> batchSynchronizations =
+                TransactionSynchronizationManager.getSynchronizations();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                write.run();
+            } catch (RuntimeException ex) {
+                connection.rollback(savepoint);
+                discardSynchronizations(batchSynchronizations);
+                throw ex;
+            }
+            connection.releaseSavepoint(savepoint);
+            return null;
+        });
+    }
+
+    /**
+     * Unregisters the synchronizations added since the batch had the given ones, which
+     * belong to a write that was rolled back to its savepoint, and completes them as
+     * rolled back.
+     */
+    private static void discardSynchronizations(List<TransactionSynchronization> batchSynchronizations) {
+        List<TransactionSynchronization> registered = TransactionSynchronizationManager.getSynchronizations();
+        List<TransactionSynchronization> rolledBack = new ArrayList<>();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        for (TransactionSynchronization synchronization : registered) {
+            if (batchSynchronizations.contains(synchronization)) {
+                TransactionSynchronizationManager.registerSynchronization(synchronization);
+            } else {
+                rolledBack.add(synchronization);
+            }
+        }
+        TransactionSynchronizationUtils.invokeAfterCompletion(rolledBack,
+                TransactionSynchronization.STATUS_ROLLED_BACK);
+    }
+
+    /**
+     * A queued write and the future its caller waits on.
+     */
+    private static final class PendingWrite<T> {
+
+        private final Supplier<T> write;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long enqueuedAt = System.nanoTime();
+        private boolean ran;
+        private T result;
+
+        PendingWrite(Supplier<T> write) {
+            this.write = write;
+        }
+
+        void run() {
+            result = write.get();
+            ran = true;
+        }
+
+        void complete() {
+            if (ran) {
+                future.complete(result);
+            }
+        }
+
+        void fail(Throwable ex) {
+            future.completeExceptionally(ex);
+        }
+
+        boolean isDone() {
+            return future.isDone();
+        }
+
+        T await() {
+            try {
+                return future.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw ex;
+            }
+        }
+    }
+}
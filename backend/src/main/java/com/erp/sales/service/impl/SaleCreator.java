@@ -0,0 +1,149 @@
+package com.erp.sales.service.impl;
+
+import com.erp.auth.entity.User;
+import com.erp.auth.repository.UserRepository;
+import com.erp.auth.security.UserPrincipal;
+import com.erp.common.exception.BadRequestException;
+import com.erp.common.exception.ResourceNotFoundException;
+import com.erp.common.money.Money;
+import com.erp.product.entity.Product;
+import com.erp.product.repository.ProductRepository;
+import com.erp.product.service.StockLedger;
+import com.erp.report.service.SalesCube;
+import com.erp.report.service.SalesRollupService;
+import com.erp.sales.dto.SaleItemRequest;
+import com.erp.sales.dto.SaleRequest;
+import com.erp.sales.dto.SaleResponse;
+import com.erp.sales.entity.Sale;
+import com.erp.sales.entity.SaleItem;
+import com.erp.sales.repository.SaleRepository;
+import com.erp.sales.service.SaleNumberAllocator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Creates sales for SaleServiceImpl and SaleIdempotencyServiceImpl.
+ * Deliberately not transactional: inside a group commit, a sale rejected here, for
+ * example for lack of stock, must fail only its own savepoint. Through a transactional
+ * proxy, the exception would mark the whole batch transaction rollback-only.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+class SaleCreator {
+
+    private final SaleRepository saleRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final SaleNumberAllocator saleNumberAllocator;
+    private final StockLedger stockLedger;
+    private final SalesRollupService salesRollupService;
+    private final SalesCube salesCube;
+
+    /**
+     * Creates a sale in the caller's transaction, which must be active.
+     */
+    SaleResponse create(SaleRequest request, UserPrincipal cashier) {
+        log.info("Creating new sale for user ID: {}", cashier.getId());
+
+        // The authenticated user exists, so only a reference is needed for the foreign key
+        User user = userRepository.getReferenceById(cashier.getId());
+
+        // Merge duplicate lines so each product is checked and decremented once
+        SortedMap<Long, Integer> quantities = new TreeMap<>();
+        for (SaleItemRequest itemRequest : request.getItems()) {
+            quantities.merge(itemRequest.getProductId(), itemRequest.getQuantity(), Integer::sum);
+        }
+        Map<Long, Product> products = loadProducts(quantities.keySet());
+
+        for (Long productId : quantities.keySet()) {
+            Product product = products.get(productId);
+            if (product == null) {
+                throw new ResourceNotFoundException("Product", "id", productId);
+            }
+
+            if (!product.getIsActive()) {
+                throw new BadRequestException("Product '" + product.getName() + "' is not available");
+            }
+        }
+
+        LocalDateTime saleDate = LocalDateTime.now();
+        Sale sale = Sale.builder()
+                .saleNumber(saleNumberAllocator.nextSaleNumber(saleDate.toLocalDate()))
+                .user(user)
+                .customerName(request.getCustomerName())
+                .customerPhone(request.getCustomerPhone())
+                .paymentMethod(request.getPaymentMethod())
+                .taxAmount(request.getTaxAmount() != null ? request.getTaxAmount() : BigDecimal.ZERO)
+                .discountAmount(request.getDiscountAmount() != null ? request.getDiscountAmount() : BigDecimal.ZERO)
+                .notes(request.getNotes())
+                .saleDate(saleDate)
+                .status(Sale.SaleStatus.COMPLETED)
+                .build();
+
+        Money subtotal = Money.ZERO;
+
+        for (SaleItemRequest itemRequest : request.getItems()) {
+            Product product = products.get(itemRequest.getProductId());
+
+            SaleItem saleItem = SaleItem.builder()
+                    .product(product)
+                    .productName(product.getName())
+                    .productSku(product.getSku())
+                    .quantity(itemRequest.getQuantity())
+                    .unitPrice(product.getPrice())
+                    .discountPercent(itemRequest.getDiscountPercent() != null ? 
+                            itemRequest.getDiscountPercent() : BigDecimal.ZERO)
+                    .build();
+
+            subtotal = subtotal.plus(saleItem.calculateLineTotal());
+            sale.addItem(saleItem);
+        }
+
+        // Reduce stock as late as possible so the row locks are held only until commit
+        reduceStock(quantities, products);
+
+        sale.setSubtotal(subtotal.toBigDecimal());
+        sale.setTotalAmount(subtotal.plus(Money.of(sale.getTaxAmount()))
+                .minus(Money.of(sale.getDiscountAmount()))
+                .toBigDecimal());
+
+        // Flush so the batched inserts run now and the response carries the creation timestamp
+        Sale savedSale = saleRepository.saveAndFlush(sale);
+        salesRollupService.recordSale(savedSale);
+        salesCube.recordSale(savedSale);
+        log.info("Sale created successfully with number: {}", savedSale.getSaleNumber());
+
+        return SaleResponse.fromEntity(savedSale, cashier.getFullName());
+    }
+
+    /**
+     * Loads all products of a sale with one query.
+     */
+    private Map<Long, Product> loadProducts(Collection<Long> productIds) {
+        return productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    /**
+     * Takes stock for all products of the sale, in ascending product ID order.
+     * Fails on the first product without enough stock; stock already taken is
+     * given back by the ledger or by the transaction rollback.
+     */
+    private void reduceStock(SortedMap<Long, Integer> quantities, Map<Long, Product> products) {
+        Long shortProductId = stockLedger.decrement(quantities);
+        if (shortProductId != null) {
+            throw new BadRequestException("Insufficient stock for product: " + products.get(shortProductId).getName());
+        }
+    }
+}
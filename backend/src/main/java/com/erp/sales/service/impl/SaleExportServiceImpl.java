@@ -0,0 +1,77 @@
+package com.erp.sales.service.impl;
+
+import com.erp.sales.dto.SaleResponse;
+import com.erp.sales.entity.Sale;
+import com.erp.sales.repository.SaleRepository;
+import com.erp.sales.service.SaleExportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of SaleExportService.
+ * Sales are streamed with their users from a server-side cursor and handled in
+ * chunks: the items of a chunk are loaded with one query, the chunk is written and
+ * flushed, and the persistence context is cleared before the next one.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SaleExportServiceImpl implements SaleExportService {
+
+    /**
+     * Sales per chunk; matches the fetch size of the streaming query.
+     */
+    private static final int CHUNK_SIZE = SaleRepository.STREAM_FETCH_SIZE;
+
+    private final SaleRepository saleRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportSales(LocalDate startDate, LocalDate endDate, OutputStream output) {
+        long exported = 0;
+        try (Stream<Sale> sales = saleRepository.streamSalesBetweenDates(
+                startDate.atStartOfDay(), endDate.atTime(LocalTime.MAX))) {
+            List<Sale> chunk = new ArrayList<>(CHUNK_SIZE);
+            Iterator<Sale> iterator = sales.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == CHUNK_SIZE || !iterator.hasNext()) {
+                    writeChunk(chunk, output);
+                    exported += chunk.size();
+                    chunk.clear();
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to write sales export", ex);
+        }
+        log.info("Exported {} sales from {} to {}", exported, startDate, endDate);
+    }
+
+    private void writeChunk(List<Sale> chunk, OutputStream output) throws IOException {
+        saleRepository.fetchItems(chunk.stream().map(Sale::getId).collect(Collectors.toList()));
+        for (Sale sale : chunk) {
+            output.write(objectMapper.writeValueAsBytes(SaleResponse.fromEntity(sale)));
+            output.write('\n');
+        }
+        output.flush();
+        // The cursor keeps reading; only the written sales are released
+        entityManager.clear();
+    }
+}
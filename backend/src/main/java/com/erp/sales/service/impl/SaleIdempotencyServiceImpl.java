@@ -0,0 +1,191 @@
+package com.erp.sales.service.impl;
+
+import com.erp.auth.security.UserPrincipal;
+import com.erp.common.exception.BadRequestException;
+import com.erp.common.exception.ConflictException;
+import com.erp.common.exception.UnprocessableEntityException;
+import com.erp.sales.dto.SaleRequest;
+import com.erp.sales.dto.SaleResponse;
+import com.erp.sales.service.SaleIdempotencyService;
+import com.erp.sales.service.SaleService;
+import com.erp.sales.service.SaleWriteExecutor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Implementation of SaleIdempotencyService.
+ * A key is claimed by inserting it into sale_idempotency_keys in the same transaction
+ * that creates the sale, so the unique key makes a duplicate on any node wait for the
+ * first commit and then read its sale. On this node, finished keys are answered from a
+ * bounded cache and duplicates of a running request wait on its future without taking
+ * a database connection.
+ */
+@Slf4j
+@Service
+public class SaleIdempotencyServiceImpl implements SaleIdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final SaleService saleService;
+    private final SaleCreator saleCreator;
+    private final JdbcTemplate jdbcTemplate;
+    private final SaleWriteExecutor saleWriteExecutor;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+
+    /** Outcome of finished keys by user and key. */
+    private final Cache<String, Outcome> completed;
+
+    /** Requests running on this node by user and key. */
+    private final Map<String, CompletableFuture<Outcome>> inFlight = new ConcurrentHashMap<>();
+
+    public SaleIdempotencyServiceImpl(
+            SaleService saleService,
+            SaleCreator saleCreator,
+            JdbcTemplate jdbcTemplate,
+            SaleWriteExecutor saleWriteExecutor,
+            ObjectMapper objectMapper,
+            @Value("${sales.idempotency.ttl:24h}") Duration ttl,
+            @Value("${sales.idempotency.cache-size:10000}") long cacheSize,
+            @Value("${sales.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this.saleService = saleService;
+        this.saleCreator = saleCreator;
+        this.jdbcTemplate = jdbcTemplate;
+        this.saleWriteExecutor = saleWriteExecutor;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public SaleResponse createSale(String idempotencyKey, SaleRequest request, UserPrincipal cashier) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String cacheKey = cashier.getId() + ":" + idempotencyKey;
+        String requestHash = hash(request);
+
+        Outcome outcome = completed.getIfPresent(cacheKey);
+        if (outcome != null) {
+            log.info("Replaying sale {} for idempotency key {}", outcome.response().getSaleNumber(), idempotencyKey);
+            return outcome.replay(requestHash);
+        }
+
+        CompletableFuture<Outcome> own = new CompletableFuture<>();
+        CompletableFuture<Outcome> running = inFlight.putIfAbsent(cacheKey, own);
+        if (running != null) {
+            log.info("Waiting for running request with idempotency key {}", idempotencyKey);
+            return await(running).replay(requestHash);
+        }
+
+        try {
+            outcome = saleWriteExecutor.execute(() -> claimAndCreate(idempotencyKey, requestHash, request, cashier));
+            completed.put(cacheKey, outcome);
+            own.complete(outcome);
+            return outcome.replay(requestHash);
+        } catch (RuntimeException ex) {
+            // Nothing was stored, so waiting duplicates fail the same way and later retries run again
+            own.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(cacheKey, own);
+        }
+    }
+
+    /**
+     * Deletes keys older than the TTL; clients must not retry a checkout after that.
+     */
+    @Scheduled(cron = "${sales.idempotency.cleanup-cron:0 30 * * * *}")
+    public void deleteExpiredKeys() {
+        int deleted = jdbcTemplate.update("DELETE FROM sale_idempotency_keys WHERE created_at < ?",
+                LocalDateTime.now().minus(ttl));
+        log.info("Deleted {} expired idempotency keys", deleted);
+    }
+
+    private Outcome claimAndCreate(String idempotencyKey, String requestHash, SaleRequest request,
+                                   UserPrincipal cashier) {
+        Long userId = cashier.getId();
+        // Blocks while another transaction holds the same key, and claims nothing once it commits
+        int claimed = jdbcTemplate.update(
+                "INSERT INTO sale_idempotency_keys (user_id, idempotency_key, request_hash) VALUES (?, ?, ?) " +
+                "ON CONFLICT DO NOTHING", userId, idempotencyKey, requestHash);
+        if (claimed == 0) {
+            Map<String, Object> existing = jdbcTemplate.queryForMap(
+                    "SELECT request_hash, sale_id FROM sale_idempotency_keys WHERE user_id = ? AND idempotency_key = ?",
+                    userId, idempotencyKey);
+            Long saleId = ((Number) existing.get("sale_id")).longValue();
+            log.info("Idempotency key {} already used for sale ID: {}", idempotencyKey, saleId);
+            return new Outcome((String) existing.get("request_hash"), saleService.getSaleById(saleId));
+        }
+
+        // Not through the transactional SaleService: a rejected sale would mark a shared group commit rollback-only
+        SaleResponse response = saleCreator.create(request, cashier);
+        jdbcTemplate.update(
+                "UPDATE sale_idempotency_keys SET sale_id = ? WHERE user_id = ? AND idempotency_key = ?",
+                response.getId(), userId, idempotencyKey);
+        return new Outcome(requestHash, response);
+    }
+
+    private Outcome await(CompletableFuture<Outcome> running) {
+        try {
+            return running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new ConflictException("A request with this idempotency key is still being processed");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a duplicate request", ex);
+        }
+    }
+
+    private String hash(SaleRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (NoSuchAlgorithmException | JsonProcessingException ex) {
+            throw new IllegalStateException("Could not fingerprint sale request", ex);
+        }
+    }
+
+    /**
+     * The sale a key produced, with the fingerprint of the request that created it.
+     */
+    private record Outcome(String requestHash, SaleResponse response) {
+
+        SaleResponse replay(String otherRequestHash) {
+            if (!requestHash.equals(otherRequestHash)) {
+                throw new UnprocessableEntityException(
+                        "Idempotency key was already used for a different sale request");
+            }
+            return response;
+        }
+    }
+}
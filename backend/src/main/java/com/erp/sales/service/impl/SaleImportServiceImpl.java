@@ -0,0 +1,268 @@
+package com.erp.sales.service.impl;
+
+import com.erp.common.entity.BaseEntity;
+import com.erp.common.exception.BadRequestException;
+import com.erp.report.service.SalesCube;
+import com.erp.report.service.SalesRollupService;
+import com.erp.sales.dto.SaleImportFormat;
+import com.erp.sales.dto.SaleImportResult;
+import com.erp.sales.entity.Sale;
+import com.erp.sales.service.SaleImportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of SaleImportService.
+ * The upload is streamed with COPY into temporary staging tables, checked with
+ * set-based queries and merged into sales and sale_items with two INSERT ... SELECT
+ * statements, so neither the file nor its rows are ever held in the JVM.
+ * IDs are taken from the entity sequences in blocks of ID_ALLOCATION_SIZE, the
+ * same way Hibernate's pooled optimizer uses them.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class SaleImportServiceImpl implements SaleImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    private static final String CREATE_LINES_SQL =
+            "CREATE TEMP TABLE import_sale_lines (" +
+            "line_no BIGINT GENERATED ALWAYS AS IDENTITY, source_line BIGINT, " +
+            "sale_number VARCHAR(20), sale_date TIMESTAMP, cashier VARCHAR(50), " +
+            "customer_name VARCHAR(100), customer_phone VARCHAR(20), payment_method VARCHAR(20), " +
+            "status VARCHAR(20), tax_amount NUMERIC(10, 2), discount_amount NUMERIC(10, 2), " +
+            "product_sku VARCHAR(50), quantity INTEGER, unit_price NUMERIC(10, 2), " +
+            "discount_percent NUMERIC(5, 2)) ON COMMIT DROP";
+
+    private static final String COPY_CSV_SQL =
+            "COPY import_sale_lines (sale_number, sale_date, cashier, customer_name, customer_phone, " +
+            "payment_method, status, tax_amount, discount_amount, product_sku, quantity, unit_price, " +
+            "discount_percent) FROM STDIN WITH (FORMAT csv, HEADER true)";
+
+    private static final String CREATE_DOCUMENTS_SQL =
+            "CREATE TEMP TABLE import_sale_documents (" +
+            "line_no BIGINT GENERATED ALWAYS AS IDENTITY, document TEXT) ON COMMIT DROP";
+
+    // Control characters cannot appear unescaped in JSON, so each line lands in one column as is
+    private static final String COPY_NDJSON_SQL =
+            "COPY import_sale_documents (document) FROM STDIN " +
+            "WITH (FORMAT csv, DELIMITER E'\\x02', QUOTE E'\\x01')";
+
+    private static final String EXPAND_DOCUMENTS_SQL =
+            "INSERT INTO import_sale_lines (source_line, sale_number, sale_date, cashier, customer_name, " +
+            "customer_phone, payment_method, status, tax_amount, discount_amount, product_sku, quantity, " +
+            "unit_price, discount_percent) " +
+            "SELECT d.line_no, d.s->>'saleNumber', CAST(d.s->>'saleDate' AS TIMESTAMP), d.s->>'cashier', " +
+            "d.s->>'customerName', d.s->>'customerPhone', d.s->>'paymentMethod', d.s->>'status', " +
+            "CAST(d.s->>'taxAmount' AS NUMERIC), CAST(d.s->>'discountAmount' AS NUMERIC), " +
+            "e.item->>'productSku', CAST(e.item->>'quantity' AS INTEGER), " +
+            "CAST(e.item->>'unitPrice' AS NUMERIC), CAST(e.item->>'discountPercent' AS NUMERIC) " +
+            "FROM (SELECT line_no, CAST(document AS JSONB) AS s FROM import_sale_documents " +
+            "WHERE btrim(document) <> '') d " +
+            "LEFT JOIN LATERAL jsonb_array_elements(d.s->'items') WITH ORDINALITY AS e(item, n) ON TRUE " +
+            "ORDER BY d.line_no, e.n";
+
+    private static final String LINE_REF = "'line ' || COALESCE(source_line, line_no + 1) || ': '";
+
+    private static final String LINE_TOTAL =
+            "round(l.quantity * l.unit_price * (1 - COALESCE(l.discount_percent, 0) / 100), 2)";
+
+    private static final String CREATE_SALES_SQL =
+            "CREATE TEMP TABLE import_sales ON COMMIT DROP AS " +
+            "SELECT h.*, ROW_NUMBER() OVER (ORDER BY h.line_no) - 1 AS ord FROM (" +
+            "SELECT DISTINCT ON (sale_number) sale_number, line_no, sale_date, cashier, customer_name, " +
+            "customer_phone, payment_method, status, tax_amount, discount_amount " +
+            "FROM import_sale_lines ORDER BY sale_number, line_no) h";
+
+    private static final String CREATE_ID_BLOCKS_SQL =
+            "CREATE TEMP TABLE %s ON COMMIT DROP AS " +
+            "SELECT g - 1 AS block, nextval('%s') AS hi FROM generate_series(1, %d) g";
+
+    private static final String INSERT_SALES_SQL =
+            "INSERT INTO sales (id, sale_number, user_id, customer_name, customer_phone, subtotal, " +
+            "tax_amount, discount_amount, total_amount, payment_method, status, sale_date) " +
+            "SELECT b.hi - ? + 1 + s.ord % ?, s.sale_number, u.id, s.customer_name, s.customer_phone, " +
+            "t.subtotal, COALESCE(s.tax_amount, 0), COALESCE(s.discount_amount, 0), " +
+            "t.subtotal + COALESCE(s.tax_amount, 0) - COALESCE(s.discount_amount, 0), " +
+            "s.payment_method, COALESCE(s.status, 'COMPLETED'), s.sale_date " +
+            "FROM import_sales s " +
+            "JOIN import_sale_id_blocks b ON b.block = s.ord / ? " +
+            "JOIN users u ON u.username = s.cashier " +
+            "JOIN (SELECT l.sale_number, SUM(" + LINE_TOTAL + ") AS subtotal " +
+            "FROM import_sale_lines l GROUP BY l.sale_number) t ON t.sale_number = s.sale_number";
+
+    private static final String INSERT_ITEMS_SQL =
+            "INSERT INTO sale_items (id, sale_id, product_id, product_name, product_sku, quantity, " +
+            "unit_price, discount_percent, line_total) " +
+            "SELECT b.hi - ? + 1 + (l.line_no - 1) % ?, s.id, p.id, p.name, p.sku, l.quantity, " +
+            "l.unit_price, COALESCE(l.discount_percent, 0), " + LINE_TOTAL + " " +
+            "FROM import_sale_lines l " +
+            "JOIN import_sale_item_id_blocks b ON b.block = (l.line_no - 1) / ? " +
+            "JOIN sales s ON s.sale_number = l.sale_number " +
+            "JOIN products p ON p.sku = l.product_sku";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SalesRollupService salesRollupService;
+    private final SalesCube salesCube;
+
+    @Override
+    public SaleImportResult importSales(SaleImportFormat format, InputStream input) {
+        log.info("Importing sales from {} upload", format);
+        long started = System.currentTimeMillis();
+
+        try {
+            jdbcTemplate.execute(CREATE_LINES_SQL);
+            if (format == SaleImportFormat.CSV) {
+                copyIn(COPY_CSV_SQL, input);
+            } else {
+                jdbcTemplate.execute(CREATE_DOCUMENTS_SQL);
+                copyIn(COPY_NDJSON_SQL, input);
+                jdbcTemplate.update(EXPAND_DOCUMENTS_SQL);
+            }
+            // Temporary tables are never auto-analyzed; the checks and merge join on them
+            jdbcTemplate.execute("ANALYZE import_sale_lines");
+
+            List<String> errors = validate();
+            if (!errors.isEmpty()) {
+                throw new BadRequestException("Import rejected: " + String.join("; ", errors));
+            }
+
+            SaleImportResult result = merge(format);
+            result.setDurationMs(System.currentTimeMillis() - started);
+            log.info("Imported {} sales with {} items in {} ms",
+                    result.getSalesImported(), result.getItemsImported(), result.getDurationMs());
+            return result;
+        } catch (DataAccessException ex) {
+            // Malformed values (bad numbers, dates, JSON, overlong text) are data exceptions, SQLSTATE class 22
+            if (ex.getMostSpecificCause() instanceof SQLException sqlException
+                    && sqlException.getSQLState() != null && sqlException.getSQLState().startsWith("22")) {
+                throw new BadRequestException("Import rejected: " + sqlException.getMessage());
+            }
+            throw ex;
+        }
+    }
+
+    private void copyIn(String sql, InputStream input) {
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, input);
+            } catch (IOException ex) {
+                throw new BadRequestException("Could not read the upload: " + ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Collects the first problems in the staged lines, stopping once enough are found.
+     */
+    private List<String> validate() {
+        List<String> errors = new ArrayList<>();
+        collect(errors,
+                "SELECT " + LINE_REF + " || 'missing ' || concat_ws(', ', " +
+                "CASE WHEN sale_number IS NULL THEN 'saleNumber' END, " +
+                "CASE WHEN sale_date IS NULL THEN 'saleDate' END, " +
+                "CASE WHEN cashier IS NULL THEN 'cashier' END, " +
+                "CASE WHEN payment_method IS NULL THEN 'paymentMethod' END, " +
+                "CASE WHEN product_sku IS NULL THEN 'productSku' END, " +
+                "CASE WHEN quantity IS NULL THEN 'quantity' END, " +
+                "CASE WHEN unit_price IS NULL THEN 'unitPrice' END) " +
+                "FROM import_sale_lines WHERE sale_number IS NULL OR sale_date IS NULL OR cashier IS NULL " +
+                "OR payment_method IS NULL OR product_sku IS NULL OR quantity IS NULL OR unit_price IS NULL " +
+                "ORDER BY line_no LIMIT ?");
+        collect(errors,
+                "SELECT " + LINE_REF + " || concat_ws(', ', " +
+                "CASE WHEN payment_method NOT IN (" + names(Sale.PaymentMethod.values()) + ") " +
+                "THEN 'unknown payment method ' || payment_method END, " +
+                "CASE WHEN status NOT IN (" + names(Sale.SaleStatus.values()) + ") " +
+                "THEN 'unknown status ' || status END, " +
+                "CASE WHEN quantity <= 0 THEN 'quantity must be positive' END, " +
+                "CASE WHEN unit_price < 0 THEN 'unit price cannot be negative' END, " +
+                "CASE WHEN discount_percent NOT BETWEEN 0 AND 100 THEN 'discount percent must be 0 to 100' END, " +
+                "CASE WHEN tax_amount < 0 OR discount_amount < 0 THEN 'amounts cannot be negative' END) " +
+                "FROM import_sale_lines WHERE payment_method NOT IN (" + names(Sale.PaymentMethod.values()) + ") " +
+                "OR status NOT IN (" + names(Sale.SaleStatus.values()) + ") OR quantity <= 0 OR unit_price < 0 " +
+                "OR discount_percent NOT BETWEEN 0 AND 100 OR tax_amount < 0 OR discount_amount < 0 " +
+                "ORDER BY line_no LIMIT ?");
+        collect(errors,
+                "SELECT 'unknown cashier ' || l.cashier FROM (SELECT DISTINCT cashier FROM import_sale_lines) l " +
+                "WHERE l.cashier IS NOT NULL AND NOT EXISTS (SELECT 1 FROM users u WHERE u.username = l.cashier) " +
+                "LIMIT ?");
+        collect(errors,
+                "SELECT 'unknown product SKU ' || l.product_sku " +
+                "FROM (SELECT DISTINCT product_sku FROM import_sale_lines) l " +
+                "WHERE l.product_sku IS NOT NULL AND NOT EXISTS (SELECT 1 FROM products p WHERE p.sku = l.product_sku) " +
+                "LIMIT ?");
+        collect(errors,
+                "SELECT 'sale number ' || l.sale_number || ' already exists' " +
+                "FROM (SELECT DISTINCT sale_number FROM import_sale_lines) l " +
+                "WHERE EXISTS (SELECT 1 FROM sales s WHERE s.sale_number = l.sale_number) LIMIT ?");
+        collect(errors,
+                "SELECT 'sale number ' || sale_number || ' has conflicting sale details' " +
+                "FROM import_sale_lines WHERE sale_number IS NOT NULL GROUP BY sale_number " +
+                "HAVING COUNT(DISTINCT (sale_date, cashier, customer_name, customer_phone, payment_method, " +
+                "status, tax_amount, discount_amount)) > 1 OR COUNT(DISTINCT source_line) > 1 LIMIT ?");
+        return errors;
+    }
+
+    private void collect(List<String> errors, String sql) {
+        int remaining = MAX_REPORTED_ERRORS - errors.size();
+        if (remaining > 0) {
+            errors.addAll(jdbcTemplate.queryForList(sql, String.class, remaining));
+        }
+    }
+
+    private SaleImportResult merge(SaleImportFormat format) {
+        jdbcTemplate.execute(CREATE_SALES_SQL);
+        long saleCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM import_sales", Long.class);
+        long lastLine = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(line_no), 0) FROM import_sale_lines", Long.class);
+        if (saleCount == 0) {
+            throw new BadRequestException("Import rejected: the upload contains no sales");
+        }
+
+        int blockSize = BaseEntity.ID_ALLOCATION_SIZE;
+        jdbcTemplate.execute(String.format(CREATE_ID_BLOCKS_SQL,
+                "import_sale_id_blocks", "sales_id_seq", blocks(saleCount)));
+        jdbcTemplate.execute(String.format(CREATE_ID_BLOCKS_SQL,
+                "import_sale_item_id_blocks", "sale_items_id_seq", blocks(lastLine)));
+
+        int sales = jdbcTemplate.update(INSERT_SALES_SQL, blockSize, blockSize, blockSize);
+        int items = jdbcTemplate.update(INSERT_ITEMS_SQL, blockSize, blockSize, blockSize);
+        List<Long> importedSaleIds = jdbcTemplate.queryForList(
+                "SELECT s.id FROM sales s JOIN import_sales i ON i.sale_number = s.sale_number", Long.class);
+        salesRollupService.addSales(importedSaleIds);
+        salesCube.addSales(importedSaleIds);
+
+        return SaleImportResult.builder()
+                .format(format)
+                .salesImported(sales)
+                .itemsImported(items)
+                .build();
+    }
+
+    private static long blocks(long ids) {
+        return (ids + BaseEntity.ID_ALLOCATION_SIZE - 1) / BaseEntity.ID_ALLOCATION_SIZE;
+    }
+
+    private static String names(Enum<?>[] values) {
+        return Arrays.stream(values)
+                .map(value -> "'" + value.name() + "'")
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,151 @@
+package com.erp.sales.service.impl;
+
+import com.erp.sales.service.SaleNumberAllocator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementation of SaleNumberAllocator.
+ * Each day has its own PostgreSQL sequence whose increment is the block size,
+ * so one nextval reserves a whole block of numbers that this node then hands
+ * out from memory. nextval runs on the caller's connection and never takes a
+ * lock or rolls back, so checkouts on every node share the sequence without
+ * extra reads per sale. Numbers left in a block when the node stops are skipped.
+ */
+@Slf4j
+@Service
+public class SaleNumberAllocatorImpl implements SaleNumberAllocator {
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String SEQUENCE_PREFIX = "sale_number_seq_";
+    private static final int RETAINED_DAYS = 2;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate newTransaction;
+    private final int blockSize;
+
+    /** Sequence increment per day whose sequence is known to exist. */
+    private final Map<LocalDate, Long> increments = new ConcurrentHashMap<>();
+
+    private LocalDate currentDay;
+    private long nextValue;
+    private long lastValue;
+
+    public SaleNumberAllocatorImpl(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${sales.number.block-size:50}") int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Sale number block size must be at least 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public synchronized String nextSaleNumber(LocalDate saleDay) {
+        if (currentDay != null && saleDay.isBefore(currentDay)) {
+            // A sale started just before midnight; keep today's block and use one number of yesterday's
+            return format(saleDay, reserveBlock(saleDay));
+        }
+        if (!saleDay.equals(currentDay) || nextValue > lastValue) {
+            lastValue = reserveBlock(saleDay);
+            nextValue = lastValue - increments.get(saleDay) + 1;
+            currentDay = saleDay;
+            log.debug("Reserved sale numbers {} to {} for {}", nextValue, lastValue, saleDay);
+        }
+        return format(saleDay, nextValue++);
+    }
+
+    /**
+     * Creates the sequences for today and tomorrow ahead of time and drops old ones,
+     * so the checkout path never has to run DDL.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${sales.number.maintenance-cron:0 0 * * * *}")
+    public void maintainSequences() {
+        LocalDate today = LocalDate.now();
+        ensureSequence(today);
+        ensureSequence(today.plusDays(1));
+
+        String oldest = sequenceName(today.minusDays(RETAINED_DAYS));
+        List<String> expired = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_class c WHERE c.relkind = 'S' AND c.relname LIKE ? " +
+                "AND CAST(c.relname AS text) < ? AND c.relnamespace = CAST(current_schema() AS regnamespace)",
+                String.class, SEQUENCE_PREFIX + "%", oldest);
+        for (String sequence : expired) {
+            jdbcTemplate.execute("DROP SEQUENCE IF EXISTS " + sequence);
+        }
+        increments.keySet().removeIf(day -> day.isBefore(today.minusDays(RETAINED_DAYS)));
+    }
+
+    private long reserveBlock(LocalDate saleDay) {
+        if (!increments.containsKey(saleDay)) {
+            // Only reached when the maintenance job has not prepared the day yet
+            ensureSequence(saleDay);
+        }
+        return jdbcTemplate.queryForObject(
+                "SELECT nextval(CAST(? AS regclass))", Long.class, sequenceName(saleDay));
+    }
+
+    /**
+     * Creates the sequence for a day if missing. The DDL runs in its own transaction,
+     * so losing a race with another node aborts only that transaction, and the
+     * increment is read afterwards from whichever sequence won.
+     */
+    private void ensureSequence(LocalDate day) {
+        String sequence = sequenceName(day);
+        if (jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NULL", Boolean.class, sequence)) {
+            try {
+                newTransaction.executeWithoutResult(status -> createSequence(day, sequence));
+            } catch (DataAccessException ex) {
+                // Another node created it concurrently; IF NOT EXISTS does not cover a concurrent create
+                log.debug("Sale number sequence {} was created concurrently", sequence, ex);
+            }
+        }
+        // Nodes may run with different block sizes; always use the sequence's own increment
+        Long increment = jdbcTemplate.queryForObject(
+                "SELECT seqincrement FROM pg_sequence WHERE seqrelid = CAST(? AS regclass)",
+                Long.class, sequence);
+        increments.put(day, increment);
+    }
+
+    /**
+     * A new sequence continues after the highest sale number already stored for its day.
+     */
+    private void createSequence(LocalDate day, String sequence) {
+        Long highest = jdbcTemplate.queryForObject(
+                "SELECT MAX(CAST(SUBSTRING(sale_number FROM 11) AS BIGINT)) FROM sales " +
+                "WHERE sale_number LIKE ? AND sale_number ~ '^SL[0-9]+$'",
+                Long.class, "SL" + day.format(DAY_FORMAT) + "%");
+        long start = (highest != null ? highest : 0) + blockSize;
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence +
+                " INCREMENT BY " + blockSize + " MINVALUE " + blockSize + " START WITH " + start);
+        log.info("Created sale number sequence {}", sequence);
+    }
+
+    private String sequenceName(LocalDate day) {
+        return SEQUENCE_PREFIX + day.format(DAY_FORMAT);
+    }
+
+    private String format(LocalDate saleDay, long sequence) {
+        return "SL" + saleDay.format(DAY_FORMAT) + String.format("%04d", sequence);
+    }
+}
@@ -0,0 +1,111 @@
+package com.erp.sales.service.impl;
+
+import com.erp.common.service.ClusterNotifier;
+import com.erp.sales.dto.SaleResponse;
+import com.erp.sales.service.SaleResponseCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caffeine implementation of SaleResponseCache.
+ * Every eviction bumps a generation counter, and a loaded response is only stored if
+ * no eviction happened while it was loading, so a response read just before a change
+ * commits cannot outlive the change.
+ * Evictions are sent to the other nodes through the ClusterNotifier, which delivers
+ * them when the changing transaction commits. A node clears its cache whenever it
+ * starts listening, since it may have missed evictions.
+ */
+@Service
+public class SaleResponseCacheImpl implements SaleResponseCache {
+
+    private static final String CHANNEL = "sale_response_cache";
+
+    private final ClusterNotifier clusterNotifier;
+    private final Cache<Long, SaleResponse> byId;
+    private final Cache<String, SaleResponse> bySaleNumber;
+    private final AtomicLong generation = new AtomicLong();
+
+    public SaleResponseCacheImpl(
+            ClusterNotifier clusterNotifier,
+            MeterRegistry meterRegistry,
+            @Value("${sales.response-cache.size:10000}") long size,
+            @Value("${sales.response-cache.ttl:10m}") Duration ttl) {
+        this.clusterNotifier = clusterNotifier;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.bySaleNumber = Caffeine.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "sales.responses.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, bySaleNumber, "sales.responses.by-number");
+        clusterNotifier.subscribe(CHANNEL, new ClusterNotifier.Subscriber() {
+            @Override
+            public void onMessage(String payload) {
+                String[] key = payload.split("\\|", 2);
+                evict(Long.valueOf(key[0]), key[1]);
+            }
+
+            @Override
+            public void onListening() {
+                generation.incrementAndGet();
+                byId.invalidateAll();
+                bySaleNumber.invalidateAll();
+            }
+        });
+    }
+
+    @Override
+    public SaleResponse getById(Long id, Supplier<SaleResponse> loader) {
+        SaleResponse response = byId.getIfPresent(id);
+        return response != null ? response : load(loader);
+    }
+
+    @Override
+    public SaleResponse getBySaleNumber(String saleNumber, Supplier<SaleResponse> loader) {
+        SaleResponse response = bySaleNumber.getIfPresent(saleNumber);
+        return response != null ? response : load(loader);
+    }
+
+    @Override
+    public void invalidate(Long id, String saleNumber) {
+        evict(id, saleNumber);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(id, saleNumber);
+            }
+        });
+        clusterNotifier.publish(CHANNEL, id + "|" + saleNumber);
+    }
+
+    private SaleResponse load(Supplier<SaleResponse> loader) {
+        long loadedIn = generation.get();
+        SaleResponse response = loader.get();
+        if (generation.get() == loadedIn) {
+            byId.put(response.getId(), response);
+            bySaleNumber.put(response.getSaleNumber(), response);
+        }
+        return response;
+    }
+
+    private void evict(Long id, String saleNumber) {
+        generation.incrementAndGet();
+        byId.invalidate(id);
+        bySaleNumber.invalidate(saleNumber);
+    }
+}
@@ -1,30 +1,31 @@
 package com.erp.sales.service.impl;
 
-import com.erp.auth.entity.User;
-import com.erp.auth.repository.UserRepository;
+import com.erp.auth.security.UserPrincipal;
+import com.erp.common.dto.CursorResponse;
 import com.erp.common.exception.BadRequestException;
 import com.erp.common.exception.ResourceNotFoundException;
-import com.erp.product.entity.Product;
-import com.erp.product.repository.ProductRepository;
-import com.erp.sales.dto.SaleItemRequest;
+import com.erp.report.service.SalesCube;
+import com.erp.report.service.SalesRollupService;
+import com.erp.sales.dto.SaleCursor;
 import com.erp.sales.dto.SaleRequest;
 import com.erp.sales.dto.SaleResponse;
+import com.erp.sales.dto.SaleSearchCriteria;
 import com.erp.sales.entity.Sale;
-import com.erp.sales.entity.SaleItem;
 import com.erp.sales.repository.SaleRepository;
+import com.erp.sales.service.SaleResponseCache;
 import com.erp.sales.service.SaleService;
+import com.erp.sales.service.SaleWriteExecutor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -38,98 +39,62 @@ import java.util.stream.Collectors;
 @Transactional
 public class SaleServiceImpl implements SaleService {
 
-    private final SaleRepository saleRepository;
-    private final ProductRepository productRepository;
-    private final UserRepository userRepository;
+    private static final int MIN_SUBSTRING_SEARCH_LENGTH = 3;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_SEARCH_PAGE_SIZE = 50;
 
+    private final SaleRepository saleRepository;
+    private final SaleCreator saleCreator;
+    private final SaleWriteExecutor saleWriteExecutor;
+    private final SaleResponseCache saleResponseCache;
+    private final SalesRollupService salesRollupService;
+    private final SalesCube salesCube;
+
+    /**
+     * Runs without a transaction of its own; the SaleWriteExecutor supplies it,
+     * or joins the caller's transaction when there is one.
+     */
     @Override
-    public SaleResponse createSale(SaleRequest request, Long userId) {
-        log.info("Creating new sale for user ID: {}", userId);
-
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
-
-        Sale sale = Sale.builder()
-                .saleNumber(generateSaleNumber())
-                .user(user)
-                .customerName(request.getCustomerName())
-                .customerPhone(request.getCustomerPhone())
-                .paymentMethod(request.getPaymentMethod())
-                .taxAmount(request.getTaxAmount() != null ? request.getTaxAmount() : BigDecimal.ZERO)
-                .discountAmount(request.getDiscountAmount() != null ? request.getDiscountAmount() : BigDecimal.ZERO)
-                .notes(request.getNotes())
-                .saleDate(LocalDateTime.now())
-                .status(Sale.SaleStatus.COMPLETED)
-                .build();
-
-        BigDecimal subtotal = BigDecimal.ZERO;
-
-        for (SaleItemRequest itemRequest : request.getItems()) {
-            Product product = productRepository.findById(itemRequest.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product", "id", itemRequest.getProductId()));
-
-            if (!product.getIsActive()) {
-                throw new BadRequestException("Product '" + product.getName() + "' is not available");
-            }
-
-            if (product.getStockQuantity() < itemRequest.getQuantity()) {
-                throw new BadRequestException("Insufficient stock for product: " + product.getName());
-            }
-
-            SaleItem saleItem = SaleItem.builder()
-                    .product(product)
-                    .productName(product.getName())
-                    .productSku(product.getSku())
-                    .quantity(itemRequest.getQuantity())
-                    .unitPrice(product.getPrice())
-                    .discountPercent(itemRequest.getDiscountPercent() != null ? 
-                            itemRequest.getDiscountPercent() : BigDecimal.ZERO)
-                    .build();
-
-            saleItem.calculateLineTotal();
-            sale.addItem(saleItem);
-            subtotal = subtotal.add(saleItem.getLineTotal());
-
-            // Reduce stock
-            product.reduceStock(itemRequest.getQuantity());
-            productRepository.save(product);
-        }
-
-        sale.setSubtotal(subtotal);
-        sale.setTotalAmount(subtotal.add(sale.getTaxAmount()).subtract(sale.getDiscountAmount()));
-
-        Sale savedSale = saleRepository.save(sale);
-        log.info("Sale created successfully with number: {}", savedSale.getSaleNumber());
-
-        return SaleResponse.fromEntity(savedSale);
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public SaleResponse createSale(SaleRequest request, UserPrincipal cashier) {
+        return saleWriteExecutor.execute(() -> saleCreator.create(request, cashier));
     }
 
+    /**
+     * Served from the response cache; a miss loads the sale with one query and
+     * needs no transaction of its own.
+     */
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public SaleResponse getSaleById(Long id) {
-        Sale sale = saleRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Sale", "id", id));
-        return SaleResponse.fromEntity(sale);
+        return saleResponseCache.getById(id, () -> saleRepository.findWithDetailsById(id)
+                .map(SaleResponse::fromEntity)
+                .orElseThrow(() -> new ResourceNotFoundException("Sale", "id", id)));
     }
 
+    /**
+     * Served from the response cache; a miss loads the sale with one query and
+     * needs no transaction of its own.
+     */
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public SaleResponse getSaleBySaleNumber(String saleNumber) {
-        Sale sale = saleRepository.findBySaleNumber(saleNumber)
-                .orElseThrow(() -> new ResourceNotFoundException("Sale", "saleNumber", saleNumber));
-        return SaleResponse.fromEntity(sale);
+        return saleResponseCache.getBySaleNumber(saleNumber, () ->
+                saleRepository.findWithDetailsBySaleNumber(saleNumber)
+                        .map(SaleResponse::fromEntity)
+                        .orElseThrow(() -> new ResourceNotFoundException("Sale", "saleNumber", saleNumber)));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<SaleResponse> getAllSales(Pageable pageable) {
-        return saleRepository.findAll(pageable).map(SaleResponse::fromEntity);
+        return toResponses(saleRepository.findAll(pageable));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<SaleResponse> getSalesByUserId(Long userId, Pageable pageable) {
-        return saleRepository.findByUserId(userId, pageable).map(SaleResponse::fromEntity);
+        return toResponses(saleRepository.findByUserId(userId, pageable));
     }
 
     @Override
@@ -147,7 +112,69 @@ public class SaleServiceImpl implements SaleService {
     public Page<SaleResponse> getSalesByDateRange(LocalDate startDate, LocalDate endDate, Pageable pageable) {
         LocalDateTime start = startDate.atStartOfDay();
         LocalDateTime end = endDate.atTime(LocalTime.MAX);
-        return saleRepository.findSalesBetweenDates(start, end, pageable).map(SaleResponse::fromEntity);
+        return toResponses(saleRepository.findSalesBetweenDates(start, end, pageable));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorResponse<SaleResponse> getSalesByCursor(LocalDate startDate, LocalDate endDate,
+                                                         String cursor, int size) {
+        return findPage(SaleSearchCriteria.builder()
+                .startDate(startDate != null ? startDate.atStartOfDay() : null)
+                .endDate(endDate != null ? endDate.atTime(LocalTime.MAX) : null)
+                .build(), cursor, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorResponse<SaleResponse> searchSales(SaleSearchCriteria criteria, String cursor, int size) {
+        if (criteria.getCustomerPhone() == null && criteria.getCustomerName() == null
+                && criteria.getSaleNumberPrefix() == null && criteria.getProductSku() == null) {
+            throw new BadRequestException("Provide a customer phone, customer name, sale number or product SKU");
+        }
+        // Shorter substrings contain no trigram, so the indexes could not narrow the search
+        if (isShorterThan(criteria.getCustomerPhone(), MIN_SUBSTRING_SEARCH_LENGTH)
+                || isShorterThan(criteria.getCustomerName(), MIN_SUBSTRING_SEARCH_LENGTH)) {
+            throw new BadRequestException("Customer phone and name searches need at least "
+                    + MIN_SUBSTRING_SEARCH_LENGTH + " characters");
+        }
+        // Substring matches recheck every row the trigram index returns, so search pages are smaller
+        if (size > MAX_SEARCH_PAGE_SIZE) {
+            throw new BadRequestException("Search page size cannot exceed " + MAX_SEARCH_PAGE_SIZE);
+        }
+        return findPage(criteria, cursor, size);
+    }
+
+    /**
+     * Reads one keyset page of sales matching the criteria, newest first.
+     */
+    private CursorResponse<SaleResponse> findPage(SaleSearchCriteria criteria, String cursor, int size) {
+        // Each page loads its sales and all of their items at once
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        SaleCursor position = cursor != null ? SaleCursor.decode(cursor) : null;
+        boolean newer = position != null && position.direction() == SaleCursor.Direction.NEWER;
+
+        // One extra row tells whether there is another page in the direction of travel
+        List<Sale> sales = saleRepository.findByKeyset(criteria, position, size + 1);
+        boolean more = sales.size() > size;
+        if (more) {
+            sales = newer ? sales.subList(1, sales.size()) : sales.subList(0, size);
+        }
+        if (!sales.isEmpty()) {
+            saleRepository.fetchItems(sales.stream().map(Sale::getId).collect(Collectors.toList()));
+        }
+
+        // The sale at the cursor lies on the side we came from, so that side always has a page
+        boolean hasOlder = !sales.isEmpty() && (newer || more);
+        boolean hasNewer = !sales.isEmpty() && position != null && (!newer || more);
+        return CursorResponse.<SaleResponse>builder()
+                .content(sales.stream().map(SaleResponse::fromEntity).collect(Collectors.toList()))
+                .size(size)
+                .nextCursor(hasOlder ? SaleCursor.olderThan(sales.get(sales.size() - 1)).encode() : null)
+                .prevCursor(hasNewer ? SaleCursor.newerThan(sales.get(0)).encode() : null)
+                .build();
     }
 
     @Override
@@ -160,21 +187,31 @@ public class SaleServiceImpl implements SaleService {
             throw new BadRequestException("Sale is already cancelled");
         }
 
+        Sale.SaleStatus previousStatus = sale.getStatus();
         sale.setStatus(Sale.SaleStatus.CANCELLED);
         Sale savedSale = saleRepository.save(sale);
+        if (previousStatus == Sale.SaleStatus.COMPLETED) {
+            salesRollupService.recordCancellation(savedSale);
+            salesCube.recordCancellation(savedSale);
+        }
+        saleResponseCache.invalidate(savedSale.getId(), savedSale.getSaleNumber());
         log.info("Sale cancelled successfully with ID: {}", id);
 
         return SaleResponse.fromEntity(savedSale);
     }
 
-    private String generateSaleNumber() {
-        String prefix = "SL" + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String lastNumber = saleRepository.findLastSaleNumber().orElse(prefix + "0000");
-        int sequence = 1;
-        if (lastNumber.startsWith(prefix)) {
-            sequence = Integer.parseInt(lastNumber.substring(prefix.length())) + 1;
+    private static boolean isShorterThan(String value, int length) {
+        return value != null && value.length() < length;
+    }
+
+    /**
+     * Maps a page of sales fetched with their users, loading all of their items
+     * in one more query instead of one query per sale.
+     */
+    private Page<SaleResponse> toResponses(Page<Sale> sales) {
+        if (sales.hasContent()) {
+            saleRepository.fetchItems(sales.map(Sale::getId).getContent());
         }
-        return prefix + String.format("%04d", sequence);
+        return sales.map(SaleResponse::fromEntity);
     }
 }
-
@@ -0,0 +1,28 @@
+package com.erp.sales.service.impl;
+
+import com.erp.sales.service.SaleWriteExecutor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * SaleWriteExecutor that runs every write in its own transaction on the calling thread.
+ */
+@Service
+@ConditionalOnProperty(prefix = "sales.group-commit", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class TransactionalSaleWriteExecutor implements SaleWriteExecutor {
+
+    private final TransactionTemplate transactionTemplate;
+
+    public TransactionalSaleWriteExecutor(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public <T> T execute(Supplier<T> write) {
+        return transactionTemplate.execute(status -> write.get());
+    }
+}
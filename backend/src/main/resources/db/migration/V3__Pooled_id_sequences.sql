@@ -0,0 +1,9 @@
+-- V3__Pooled_id_sequences.sql
+-- Entities now take IDs from their table sequence through Hibernate's pooled
+-- optimizer, which reserves 50 IDs per nextval. The increment must match the
+-- allocationSize in BaseEntity; column defaults keep working for plain SQL inserts.
+
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE products_id_seq INCREMENT BY 50;
+ALTER SEQUENCE sales_id_seq INCREMENT BY 50;
+ALTER SEQUENCE sale_items_id_seq INCREMENT BY 50;
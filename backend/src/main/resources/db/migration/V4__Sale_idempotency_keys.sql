@@ -0,0 +1,15 @@
+-- V4__Sale_idempotency_keys.sql
+-- Idempotency keys sent with POST /sales. A retried checkout with the same key
+-- returns the sale recorded here instead of creating a second one.
+
+CREATE TABLE IF NOT EXISTS sale_idempotency_keys (
+    user_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(100) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    sale_id BIGINT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT pk_sale_idempotency_keys PRIMARY KEY (user_id, idempotency_key),
+    CONSTRAINT fk_sale_idempotency_keys_sale FOREIGN KEY (sale_id) REFERENCES sales(id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_sale_idempotency_keys_created_at ON sale_idempotency_keys(created_at);
@@ -0,0 +1,14 @@
+-- V5__Stock_movements.sql
+-- Journal of stock changes taken by the in-memory stock ledger. Rows are written in
+-- the sale transaction and removed once their delta is applied to products.stock_quantity,
+-- so available stock is stock_quantity plus the remaining rows.
+
+CREATE TABLE IF NOT EXISTS stock_movements (
+    id BIGSERIAL PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    quantity_delta INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_stock_movements_product FOREIGN KEY (product_id) REFERENCES products(id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_movements_product_id ON stock_movements(product_id);
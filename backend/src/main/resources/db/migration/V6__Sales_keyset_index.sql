@@ -0,0 +1,11 @@
+-- V6__Sales_keyset_index.sql
+-- Cursor pagination of the sales history orders and seeks on (sale_date, id).
+-- Adding the ID to the sale date index lets those queries read the index in order
+-- and stop after one page, however deep the cursor is.
+-- The new index is built concurrently under its own name before the old one is
+-- dropped, so sales can still be written and the history read while it builds.
+-- CONCURRENTLY cannot run inside a transaction, see V6__Sales_keyset_index.sql.conf.
+-- A build that fails leaves idx_sales_sale_date_id invalid; drop it before retrying.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_sales_sale_date_id ON sales(sale_date, id);
+DROP INDEX CONCURRENTLY IF EXISTS idx_sales_sale_date;
@@ -0,0 +1,11 @@
+-- V7__Sale_search_indexes.sql
+-- Indexes behind GET /sales/search. Trigram indexes answer substring matches on the
+-- customer's phone and name, the pattern index answers sale number prefixes whatever
+-- the database collation, and the SKU index finds the sales a product was sold on.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_sales_customer_phone_trgm ON sales USING GIN (customer_phone gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_sales_customer_name_trgm ON sales USING GIN (customer_name gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_sales_sale_number_prefix ON sales(sale_number varchar_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_sale_items_product_sku ON sale_items(product_sku);
@@ -0,0 +1,25 @@
+package com.erp;
+
+import org.junit.jupiter.api.extension.ConditionEvaluationResult;
+import org.junit.jupiter.api.extension.ExecutionCondition;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.testcontainers.DockerClientFactory;
+
+/**
+ * Runs PostgreSQL tests when TEST_DATABASE_URL points at a database or Docker can
+ * start one.
+ */
+public class PostgresAvailableCondition implements ExecutionCondition {
+
+    @Override
+    public ConditionEvaluationResult evaluateExecutionCondition(ExtensionContext context) {
+        String url = System.getenv("TEST_DATABASE_URL");
+        if (url != null && !url.isBlank()) {
+            return ConditionEvaluationResult.enabled("Using TEST_DATABASE_URL");
+        }
+        if (DockerClientFactory.instance().isDockerAvailable()) {
+            return ConditionEvaluationResult.enabled("Using a Testcontainers PostgreSQL database");
+        }
+        return ConditionEvaluationResult.disabled("Neither TEST_DATABASE_URL nor Docker is available");
+    }
+}
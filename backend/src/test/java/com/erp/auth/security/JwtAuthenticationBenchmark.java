@@ -0,0 +1,99 @@
+package com.erp.auth.security;
+
+import com.erp.auth.entity.Role;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of authenticating a request from its token: the former path,
+ * which built a parser and verified the token twice, one verification through the
+ * shared parser, and the filter answering from its cache of verified tokens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationBenchmark {
+
+    private static final String SECRET = "benchmarkSecretKeyForJwtTokensThatIsLongEnough";
+
+    private SecretKey secretKey;
+    private JwtTokenProvider tokenProvider;
+    private JwtAuthenticationFilter filter;
+    private String token;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        secretKey = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        tokenProvider = new JwtTokenProvider(SECRET, Duration.ofHours(1).toMillis());
+        filter = new JwtAuthenticationFilter(tokenProvider, new SimpleMeterRegistry(), 10_000, Duration.ofMinutes(5));
+
+        UserPrincipal cashier = new UserPrincipal(1L, "cashier", null, "Benchmark Cashier", Role.CASHIER, true);
+        Authentication authentication =
+                new UsernamePasswordAuthenticationToken(cashier, null, cashier.getAuthorities());
+        token = tokenProvider.generateToken(authentication);
+        request = new MockHttpServletRequest("GET", "/sales");
+        request.addHeader("Authorization", "Bearer " + token);
+    }
+
+    /**
+     * What the filter did before: validate the token, then parse it again for the claims,
+     * building a new parser each time.
+     */
+    @Benchmark
+    public UserPrincipal validateThenParse() {
+        Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token);
+        Claims claims = Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token).getPayload();
+        return new UserPrincipal(claims.get("userId", Long.class), claims.getSubject(), null,
+                claims.get("fullName", String.class), Role.valueOf(claims.get("role", String.class)), true);
+    }
+
+    @Benchmark
+    public JwtTokenProvider.VerifiedToken verifyOnce() {
+        return tokenProvider.verifyToken(token);
+    }
+
+    @Benchmark
+    public Authentication filterWithCachedToken() throws ServletException, IOException {
+        SecurityContextHolder.clearContext();
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthenticationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
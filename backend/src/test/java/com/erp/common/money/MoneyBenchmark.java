@@ -0,0 +1,102 @@
+package com.erp.common.money;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares Money with BigDecimal for what sales and reports do with amounts: work out
+ * discounted line totals, and add up many amounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final int LINES = 10_000;
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private BigDecimal[] unitPrices;
+    private Money[] unitPriceMoney;
+    private int[] quantities;
+    private BigDecimal[] discounts;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        unitPrices = new BigDecimal[LINES];
+        unitPriceMoney = new Money[LINES];
+        quantities = new int[LINES];
+        discounts = new BigDecimal[LINES];
+        for (int i = 0; i < LINES; i++) {
+            unitPrices[i] = BigDecimal.valueOf(random.nextInt(1, 100_000), 2);
+            unitPriceMoney[i] = Money.of(unitPrices[i]);
+            quantities[i] = random.nextInt(1, 10);
+            discounts[i] = random.nextInt(4) == 0 ? BigDecimal.valueOf(random.nextInt(5_000), 2) : BigDecimal.ZERO;
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalLineTotals() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < LINES; i++) {
+            BigDecimal gross = unitPrices[i].multiply(BigDecimal.valueOf(quantities[i]));
+            if (discounts[i].signum() > 0) {
+                gross = gross.multiply(BigDecimal.ONE.subtract(discounts[i].divide(HUNDRED)));
+            }
+            total = total.add(gross.setScale(2, RoundingMode.HALF_UP));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Money moneyLineTotals() {
+        Money total = Money.ZERO;
+        for (int i = 0; i < LINES; i++) {
+            total = total.plus(Money.of(unitPrices[i]).times(quantities[i]).lessPercent(discounts[i]));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalSum() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal amount : unitPrices) {
+            total = total.add(amount);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Money moneySum() {
+        Money total = Money.ZERO;
+        for (Money amount : unitPriceMoney) {
+            total = total.plus(amount);
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MoneyBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
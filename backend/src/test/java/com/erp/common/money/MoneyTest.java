@@ -0,0 +1,89 @@
+package com.erp.common.money;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that Money rounds like BigDecimal with HALF_UP, for negative amounts too,
+ * and refuses results that overflow.
+ */
+class MoneyTest {
+
+    @Test
+    void dividedByRoundsHalfAwayFromZero() {
+        assertThat(Money.ofCents(5).dividedBy(2)).isEqualTo(Money.ofCents(3));
+        assertThat(Money.ofCents(-5).dividedBy(2)).isEqualTo(Money.ofCents(-3));
+        assertThat(Money.ofCents(5).dividedBy(-2)).isEqualTo(Money.ofCents(-3));
+        assertThat(Money.ofCents(-5).dividedBy(-2)).isEqualTo(Money.ofCents(3));
+        assertThat(Money.ofCents(-4).dividedBy(3)).isEqualTo(Money.ofCents(-1));
+        assertThat(Money.ofCents(-7).dividedBy(3)).isEqualTo(Money.ofCents(-2));
+    }
+
+    @Test
+    void dividedByMatchesBigDecimal() {
+        Random random = new Random(5);
+        for (int i = 0; i < 10_000; i++) {
+            long cents = random.nextLong(-1_000_000_000L, 1_000_000_000L);
+            long parts = random.nextLong(1, 1_000);
+            BigDecimal expected = BigDecimal.valueOf(cents, 2)
+                    .divide(BigDecimal.valueOf(parts), 2, RoundingMode.HALF_UP);
+
+            assertThat(Money.ofCents(cents).dividedBy(parts).toBigDecimal()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void lessPercentRoundsToCentsHalfUp() {
+        // 0.05 less 50% is 0.025
+        assertThat(Money.ofCents(5).lessPercent(new BigDecimal("50"))).isEqualTo(Money.ofCents(3));
+        assertThat(Money.ofCents(-5).lessPercent(new BigDecimal("50"))).isEqualTo(Money.ofCents(-3));
+        // 9.99 less 33.33% is 6.660333
+        assertThat(Money.ofCents(999).lessPercent(new BigDecimal("33.33"))).isEqualTo(Money.ofCents(666));
+        // The percentage is rounded first, 12.345% to 12.35%: 100.00 less it is 87.65
+        assertThat(Money.ofCents(10_000).lessPercent(new BigDecimal("12.345"))).isEqualTo(Money.ofCents(8765));
+        assertThat(Money.ofCents(10_000).lessPercent(new BigDecimal("100"))).isEqualTo(Money.ZERO);
+        assertThat(Money.ofCents(10_000).lessPercent(null)).isEqualTo(Money.ofCents(10_000));
+    }
+
+    @Test
+    void lessPercentMatchesBigDecimal() {
+        Random random = new Random(9);
+        for (int i = 0; i < 10_000; i++) {
+            long cents = random.nextLong(-10_000_000L, 10_000_000L);
+            BigDecimal percent = BigDecimal.valueOf(random.nextInt(10_001), 2);
+            BigDecimal expected = BigDecimal.valueOf(cents, 2)
+                    .multiply(BigDecimal.ONE.subtract(percent.movePointLeft(2)))
+                    .setScale(2, RoundingMode.HALF_UP);
+
+            assertThat(Money.ofCents(cents).lessPercent(percent).toBigDecimal()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void ofRoundsHalfUp() {
+        assertThat(Money.of(new BigDecimal("1.005"))).isEqualTo(Money.ofCents(101));
+        assertThat(Money.of(new BigDecimal("-1.005"))).isEqualTo(Money.ofCents(-101));
+        assertThat(Money.of(new BigDecimal("1.004"))).isEqualTo(Money.ofCents(100));
+        assertThat(Money.of(null)).isEqualTo(Money.ZERO);
+    }
+
+    @Test
+    void overflowThrows() {
+        Money max = Money.ofCents(Long.MAX_VALUE);
+
+        assertThatThrownBy(() -> max.plus(Money.ofCents(1))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.ofCents(Long.MIN_VALUE).minus(Money.ofCents(1)))
+                .isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> max.times(2)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.ofCents(Long.MAX_VALUE / 1_000).lessPercent(BigDecimal.ONE))
+                .isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.of(new BigDecimal("1e20"))).isInstanceOf(ArithmeticException.class);
+        assertThat(max.plus(Money.ofCents(-1)).times(1)).isEqualTo(Money.ofCents(Long.MAX_VALUE - 1));
+    }
+}
@@ -0,0 +1,89 @@
+package com.erp.common.service.impl;
+
+import com.erp.PostgresTest;
+import com.erp.common.service.ClusterNotifier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that messages reach the other nodes only when their transaction commits,
+ * and never come back to the node that sent them.
+ */
+@PostgresTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PgClusterNotifierTest {
+
+    private static final String CHANNEL = "cluster_notifier_test";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private PgClusterNotifier sender;
+    private PgClusterNotifier receiver;
+
+    @AfterEach
+    void stop() throws InterruptedException {
+        sender.stop();
+        receiver.stop();
+    }
+
+    @Test
+    void committedMessagesReachOtherNodesOnly() throws Exception {
+        sender = new PgClusterNotifier(jdbcTemplate, dataSourceProperties, true);
+        receiver = new PgClusterNotifier(jdbcTemplate, dataSourceProperties, true);
+        BlockingQueue<String> sent = subscribe(sender);
+        BlockingQueue<String> received = subscribe(receiver);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            sender.publish(CHANNEL, "rolled back");
+            status.setRollbackOnly();
+        });
+        transaction.executeWithoutResult(status -> sender.publish(CHANNEL, "committed|with separator"));
+
+        assertThat(received.poll(10, TimeUnit.SECONDS)).isEqualTo("committed|with separator");
+        assertThat(received.poll(2, TimeUnit.SECONDS)).isNull();
+        assertThat(sent).isEmpty();
+    }
+
+    /**
+     * Subscribes to the test channel and waits until the node listens.
+     */
+    private BlockingQueue<String> subscribe(ClusterNotifier notifier) throws InterruptedException {
+        BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+        CountDownLatch listening = new CountDownLatch(1);
+        notifier.subscribe(CHANNEL, new ClusterNotifier.Subscriber() {
+            @Override
+            public void onMessage(String payload) {
+                messages.add(payload);
+            }
+
+            @Override
+            public void onListening() {
+                listening.countDown();
+            }
+        });
+        assertThat(listening.await(10, TimeUnit.SECONDS)).isTrue();
+        return messages;
+    }
+}
@@ -0,0 +1,140 @@
+package com.erp.product.repository;
+
+import com.erp.PostgresTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the conditional stock update never oversells when many sales take
+ * stock of the same products at once, each in its own transaction.
+ */
+@PostgresTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+// Enough connections that most threads contend on the row rather than on the pool
+@TestPropertySource(properties = "spring.datasource.hikari.maximum-pool-size=50")
+class ProductRepositoryCustomImplTest {
+
+    private static final int INITIAL_STOCK = 1000;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<Long> productIds = new ArrayList<>();
+
+    @AfterEach
+    void deleteProducts() {
+        productIds.forEach(id -> jdbcTemplate.update("DELETE FROM products WHERE id = ?", id));
+    }
+
+    @Test
+    void hundredsOfThreadsNeverTakeHotProductBelowZero() throws Exception {
+        checkParallelSales(1, 200, 25);
+    }
+
+    @Test
+    void salesOfSeveralProductsNeverTakeStockBelowZero() throws Exception {
+        checkParallelSales(3, 16, 200);
+    }
+
+    /**
+     * Runs sales of random quantities of the products from many threads at once until
+     * far more is ordered than is in stock, then checks the stock left against what
+     * the committed sales took.
+     */
+    private void checkParallelSales(int products, int threads, int salesPerThread) throws Exception {
+        for (int i = 0; i < products; i++) {
+            productIds.add(jdbcTemplate.queryForObject(
+                    "INSERT INTO products (sku, name, price, stock_quantity, is_active) " +
+                    "VALUES (?, 'Stress test product', 1.00, ?, true) RETURNING id",
+                    Long.class, "STRESS-" + UUID.randomUUID(), INITIAL_STOCK));
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        AtomicLongArray taken = new AtomicLongArray(products);
+        AtomicInteger refused = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Random random = new Random(t);
+                running.add(executor.submit(() -> {
+                    start.await();
+                    for (int sale = 0; sale < salesPerThread; sale++) {
+                        int[] quantities = new int[products];
+                        SortedMap<Long, Integer> order = new TreeMap<>();
+                        for (int p = 0; p < products; p++) {
+                            if (products == 1 || random.nextBoolean()) {
+                                quantities[p] = 1 + random.nextInt(5);
+                                order.put(productIds.get(p), quantities[p]);
+                            }
+                        }
+                        if (order.isEmpty()) {
+                            continue;
+                        }
+                        // A sale short of any product rolls back what it took of the others
+                        boolean committed = Boolean.TRUE.equals(transaction.execute(status -> {
+                            int[] updated = productRepository.decrementStock(order);
+                            if (Arrays.stream(updated).anyMatch(rows -> rows == 0)) {
+                                status.setRollbackOnly();
+                                return false;
+                            }
+                            return true;
+                        }));
+                        if (committed) {
+                            for (int p = 0; p < products; p++) {
+                                taken.addAndGet(p, quantities[p]);
+                            }
+                        } else {
+                            refused.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> thread : running) {
+                thread.get(5, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Far more is ordered than is in stock, so sales must have been refused
+        assertThat(refused.get()).isPositive();
+        for (int p = 0; p < products; p++) {
+            Integer stock = jdbcTemplate.queryForObject(
+                    "SELECT stock_quantity FROM products WHERE id = ?", Integer.class, productIds.get(p));
+            assertThat(stock).isNotNegative().isEqualTo(INITIAL_STOCK - (int) taken.get(p));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.erp.product.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the in-memory counters never oversell when many sales take stock
+ * of the same products at once, some of them rolling back.
+ */
+class InMemoryStockLedgerTest {
+
+    private static final long[] PRODUCT_IDS = {1L, 2L, 3L};
+    private static final int INITIAL_STOCK = 100;
+    private static final int THREADS = 16;
+    private static final int SALES_PER_THREAD = 500;
+
+    private final InMemoryStockLedger ledger = new InMemoryStockLedger(new StubJdbcTemplate());
+
+    @Test
+    void parallelDecrementsNeverTakeStockBelowZero() throws Exception {
+        AtomicLongArray taken = new AtomicLongArray(PRODUCT_IDS.length);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> threads = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                Random random = new Random(t);
+                threads.add(executor.submit(() -> {
+                    start.await();
+                    for (int sale = 0; sale < SALES_PER_THREAD; sale++) {
+                        int[] quantities = new int[PRODUCT_IDS.length];
+                        SortedMap<Long, Integer> order = new TreeMap<>();
+                        for (int p = 0; p < PRODUCT_IDS.length; p++) {
+                            if (random.nextBoolean()) {
+                                quantities[p] = 1 + random.nextInt(5);
+                                order.put(PRODUCT_IDS[p], quantities[p]);
+                            }
+                        }
+                        if (order.isEmpty()) {
+                            continue;
+                        }
+                        boolean rollBack = random.nextInt(4) == 0;
+                        boolean took = runInTransaction(() -> ledger.decrement(order) == null, rollBack);
+                        if (took && !rollBack) {
+                            for (int p = 0; p < PRODUCT_IDS.length; p++) {
+                                taken.addAndGet(p, quantities[p]);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> thread : threads) {
+                thread.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int p = 0; p < PRODUCT_IDS.length; p++) {
+            long remaining = INITIAL_STOCK - taken.get(p);
+            assertThat(remaining).isNotNegative();
+            // Exactly the remaining stock can still be taken, and not one more
+            assertThat(decrementCommitted(PRODUCT_IDS[p], remaining + 1)).isEqualTo(PRODUCT_IDS[p]);
+            if (remaining > 0) {
+                assertThat(decrementCommitted(PRODUCT_IDS[p], remaining)).isNull();
+            }
+        }
+    }
+
+    private Long decrementCommitted(long productId, long quantity) {
+        Long[] shortProductId = new Long[1];
+        runInTransaction(() -> {
+            shortProductId[0] = ledger.decrement(new TreeMap<>(Map.of(productId, (int) quantity)));
+            return true;
+        }, false);
+        return shortProductId[0];
+    }
+
+    /**
+     * Runs the work with transaction synchronization active on this thread, then
+     * completes the registered synchronizations as a commit or rollback would.
+     */
+    private static boolean runInTransaction(BooleanSupplier work, boolean rollBack) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            boolean result = work.getAsBoolean();
+            int status = rollBack ? TransactionSynchronization.STATUS_ROLLED_BACK
+                    : TransactionSynchronization.STATUS_COMMITTED;
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                if (!rollBack) {
+                    synchronization.afterCommit();
+                }
+                synchronization.afterCompletion(status);
+            }
+            return result;
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * Serves every product with the same stock and no journaled movements, and
+     * accepts journal inserts.
+     */
+    private static final class StubJdbcTemplate extends JdbcTemplate {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            return List.of((T) Long.valueOf(INITIAL_STOCK));
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            return new int[batchArgs.size()];
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.erp.report.service.impl;
+
+import com.erp.report.dto.ProductRanking;
+import com.erp.report.dto.SalesReportSummary;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Checks the top products picked by ProductTotals against sorting every product.
+ */
+class ProductTotalsTest {
+
+    @Test
+    void topMatchesSortedProducts() {
+        Random random = new Random(17);
+        ProductTotals totals = new ProductTotals();
+        Map<Long, long[]> reference = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            // Product IDs far apart and few distinct values, so there are collisions and ties
+            long productId = random.nextInt(3_000) * 1_000_003L;
+            long quantity = random.nextInt(5);
+            long cents = random.nextInt(5) * 100L;
+            totals.add(productId, "Product " + productId, quantity, cents);
+            long[] expected = reference.computeIfAbsent(productId, id -> new long[2]);
+            expected[0] += quantity;
+            expected[1] += cents;
+        }
+
+        assertThat(totals.size()).isEqualTo(reference.size());
+        for (ProductRanking ranking : ProductRanking.values()) {
+            for (int limit : new int[]{1, 10, 100, reference.size()}) {
+                assertThat(totals.top(limit, ranking)).isEqualTo(sortedTop(reference, limit, ranking));
+            }
+        }
+    }
+
+    @Test
+    void tiesAreBrokenByProductId() {
+        ProductTotals totals = new ProductTotals();
+        totals.add(30, "C", 5, 500);
+        totals.add(10, "A", 5, 500);
+        totals.add(20, "B", 5, 500);
+        totals.add(40, "D", 1, 900);
+
+        assertThat(productIds(totals.top(3, ProductRanking.QUANTITY))).containsExactly(10L, 20L, 30L);
+        assertThat(productIds(totals.top(2, ProductRanking.REVENUE))).containsExactly(40L, 10L);
+    }
+
+    @Test
+    void limitBeyondProductCountReturnsEveryProduct() {
+        ProductTotals totals = new ProductTotals();
+        totals.add(1, "A", 1, 100);
+        totals.add(2, "B", 3, 50);
+
+        assertThat(productIds(totals.top(10, ProductRanking.QUANTITY))).containsExactly(2L, 1L);
+        assertThat(productIds(totals.top(10, ProductRanking.REVENUE))).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void zeroLimitOrNoProductsReturnsNothing() {
+        ProductTotals totals = new ProductTotals();
+        assertThat(totals.top(10, ProductRanking.QUANTITY)).isEmpty();
+
+        totals.add(1, "A", 1, 100);
+        assertThat(totals.top(0, ProductRanking.QUANTITY)).isEmpty();
+    }
+
+    @Test
+    void growingKeepsEveryProductsTotals() {
+        ProductTotals totals = new ProductTotals();
+        int products = 1_000;
+        for (int round = 0; round < 2; round++) {
+            for (long productId = 1; productId <= products; productId++) {
+                totals.add(productId, "Product " + productId, productId, productId * 100);
+            }
+        }
+
+        assertThat(totals.size()).isEqualTo(products);
+        List<SalesReportSummary.TopProductSummary> top = totals.top(products, ProductRanking.QUANTITY);
+        for (int i = 0; i < products; i++) {
+            long productId = products - i;
+            assertThat(top.get(i).getProductId()).isEqualTo(productId);
+            assertThat(top.get(i).getQuantitySold()).isEqualTo(2 * productId);
+            assertThat(top.get(i).getRevenue()).isEqualTo(BigDecimal.valueOf(2 * productId * 100, 2));
+        }
+    }
+
+    @Test
+    void addAllAndCopyKeepTheGreatestName() {
+        ProductTotals first = new ProductTotals();
+        first.add(1, "Cola", 1, 100);
+        ProductTotals second = new ProductTotals();
+        second.add(1, "Cola Zero", 2, 200);
+        second.add(2, "Water", 1, 50);
+
+        ProductTotals merged = first.copy();
+        merged.addAll(second);
+
+        assertThat(merged.top(2, ProductRanking.QUANTITY)).extracting(
+                SalesReportSummary.TopProductSummary::getProductName,
+                SalesReportSummary.TopProductSummary::getQuantitySold)
+                .containsExactly(tuple("Cola Zero", 3L), tuple("Water", 1L));
+        // The copy is independent of the original
+        assertThat(first.top(1, ProductRanking.QUANTITY).get(0).getQuantitySold()).isEqualTo(1L);
+    }
+
+    private static List<SalesReportSummary.TopProductSummary> sortedTop(Map<Long, long[]> reference, int limit,
+                                                                       ProductRanking ranking) {
+        int value = ranking == ProductRanking.REVENUE ? 1 : 0;
+        return reference.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<Long, long[]>>comparingLong(entry -> -entry.getValue()[value])
+                        .thenComparingLong(Map.Entry::getKey))
+                .limit(limit)
+                .map(entry -> SalesReportSummary.TopProductSummary.builder()
+                        .productId(entry.getKey())
+                        .productName("Product " + entry.getKey())
+                        .quantitySold(entry.getValue()[0])
+                        .revenue(BigDecimal.valueOf(entry.getValue()[1], 2))
+                        .build())
+                .toList();
+    }
+
+    private static List<Long> productIds(List<SalesReportSummary.TopProductSummary> top) {
+        return top.stream().map(SalesReportSummary.TopProductSummary::getProductId).toList();
+    }
+}
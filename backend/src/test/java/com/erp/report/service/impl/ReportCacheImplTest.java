@@ -0,0 +1,109 @@
+package com.erp.report.service.impl;
+
+import com.erp.common.service.ClusterNotifier;
+import com.erp.report.service.ReportCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Checks coalesced loads and invalidations of the report cache, including the ones
+ * received from other nodes.
+ */
+class ReportCacheImplTest {
+
+    private static final ReportCache.ReportType TYPE = ReportCache.ReportType.SALES_SUMMARY;
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END = LocalDate.of(2024, 1, 31);
+
+    private final ClusterNotifier clusterNotifier = mock(ClusterNotifier.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReportCacheImpl cache = new ReportCacheImpl(
+            clusterNotifier, meterRegistry, 100, Duration.ofHours(1));
+
+    @Test
+    void waitingCallersAreReleasedWhenTheLoadFailsWithAnError() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> cache.get(TYPE, START, END, () -> {
+            loading.countDown();
+            awaitCoalescedCallers(1);
+            throw new StackOverflowError();
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Object> waiter = CompletableFuture.supplyAsync(
+                () -> cache.get(TYPE, START, END, () -> "not loaded"));
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class).hasCauseInstanceOf(StackOverflowError.class);
+        assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void invalidationIsPublishedToOtherNodes() {
+        cache.invalidate(LocalDate.of(2024, 1, 15));
+        cache.invalidateAll();
+
+        verify(clusterNotifier).publish(eq("report_cache"), eq("2024-01-15"));
+        verify(clusterNotifier).publish(eq("report_cache"), eq("*"));
+    }
+
+    @Test
+    void invalidationFromAnotherNodeEvictsResultsContainingTheDay() {
+        ClusterNotifier.Subscriber subscriber = subscriber();
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(TYPE, START, END, loads::incrementAndGet);
+        cache.get(TYPE, START, START, loads::incrementAndGet);
+
+        subscriber.onMessage("2024-01-15");
+        cache.get(TYPE, START, END, loads::incrementAndGet);
+        cache.get(TYPE, START, START, loads::incrementAndGet);
+        assertThat(loads).hasValue(3);
+
+        subscriber.onMessage("*");
+        cache.get(TYPE, START, START, loads::incrementAndGet);
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void startingToListenEvictsEverything() {
+        ClusterNotifier.Subscriber subscriber = subscriber();
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(TYPE, START, END, loads::incrementAndGet);
+
+        subscriber.onListening();
+        cache.get(TYPE, START, END, loads::incrementAndGet);
+        assertThat(loads).hasValue(2);
+    }
+
+    private ClusterNotifier.Subscriber subscriber() {
+        ArgumentCaptor<ClusterNotifier.Subscriber> subscriber =
+                ArgumentCaptor.forClass(ClusterNotifier.Subscriber.class);
+        verify(clusterNotifier).subscribe(eq("report_cache"), subscriber.capture());
+        return subscriber.getValue();
+    }
+
+    private void awaitCoalescedCallers(int callers) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.counter("reports.results.coalesced").count() < callers) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("No caller waited for the load");
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.erp.report.service.impl;
+
+import com.erp.report.dto.ProductRanking;
+import com.erp.report.dto.SalesReportSummary;
+import com.erp.report.service.ReportCache;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures how a three year sales summary scales with the number of partition threads.
+ * Needs a PostgreSQL database in TEST_DATABASE_URL; the rollups it writes are deleted
+ * afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportPartitionBenchmark {
+
+    // Later than any real sale, so the benchmark's rollups are the only ones in the range
+    private static final LocalDate FIRST_DAY = LocalDate.of(2995, 1, 1);
+    private static final int DAYS = 3 * 365;
+    private static final int PRODUCTS = 200;
+    private static final String[] PAYMENT_METHODS = {"CASH", "CARD", "BANK_TRANSFER"};
+
+    @Param({"1", "2", "4", "8"})
+    private int threads;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private ReportServiceImpl reportService;
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("TEST_DATABASE_URL"));
+        dataSource.setUsername(System.getenv().getOrDefault("TEST_DATABASE_USERNAME", "postgres"));
+        dataSource.setPassword(System.getenv().getOrDefault("TEST_DATABASE_PASSWORD", "postgres"));
+        dataSource.setMaximumPoolSize(threads + 1);
+        // As in application.yml, so CREATE INDEX CONCURRENTLY does not wait on the migration lock
+        Flyway.configure().dataSource(dataSource).baselineOnMigrate(true).baselineVersion("0")
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        deleteRollups();
+        insertRollups();
+
+        reportService = new ReportServiceImpl(null, jdbcTemplate, mock(ReportCache.class),
+                new DataSourceTransactionManager(dataSource), 31, threads, 100, Duration.ofMinutes(1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        reportService.stop();
+        deleteRollups();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public SalesReportSummary threeYearSummary() {
+        return reportService.generateSalesReport(FIRST_DAY, FIRST_DAY.plusDays(DAYS - 1), 10,
+                ProductRanking.REVENUE);
+    }
+
+    private void insertRollups() {
+        Random random = new Random(3);
+        List<Object[]> payments = new ArrayList<>();
+        List<Object[]> products = new ArrayList<>();
+        for (int d = 0; d < DAYS; d++) {
+            Date day = Date.valueOf(FIRST_DAY.plusDays(d));
+            for (String paymentMethod : PAYMENT_METHODS) {
+                payments.add(new Object[]{day, paymentMethod, 1 + random.nextInt(200),
+                        cents(random, 1_000_000), cents(random, 100_000), cents(random, 10_000)});
+            }
+            for (long productId = 1; productId <= PRODUCTS; productId++) {
+                products.add(new Object[]{day, productId, "Product " + productId, 1 + random.nextInt(20),
+                        cents(random, 100_000)});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO sales_daily_payment_rollup " +
+                "(sale_day, payment_method, slot, sales_count, revenue, tax, discount) " +
+                "VALUES (?, ?, 0, ?, ?, ?, ?)", payments);
+        jdbcTemplate.batchUpdate("INSERT INTO sales_daily_product_rollup " +
+                "(sale_day, product_id, slot, product_name, quantity_sold, revenue) " +
+                "VALUES (?, ?, 0, ?, ?, ?)", products);
+        jdbcTemplate.execute("ANALYZE sales_daily_payment_rollup");
+        jdbcTemplate.execute("ANALYZE sales_daily_product_rollup");
+    }
+
+    private void deleteRollups() {
+        LocalDate lastDay = FIRST_DAY.plusDays(DAYS - 1);
+        jdbcTemplate.update("DELETE FROM sales_daily_payment_rollup WHERE sale_day BETWEEN ? AND ?",
+                FIRST_DAY, lastDay);
+        jdbcTemplate.update("DELETE FROM sales_daily_product_rollup WHERE sale_day BETWEEN ? AND ?",
+                FIRST_DAY, lastDay);
+    }
+
+    private static BigDecimal cents(Random random, int bound) {
+        return BigDecimal.valueOf(random.nextInt(bound), 2);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ReportPartitionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,112 @@
+package com.erp.report.service.impl;
+
+import com.erp.PostgresTest;
+import com.erp.report.dto.ProductRanking;
+import com.erp.report.dto.SalesReportSummary;
+import com.erp.report.service.ReportCache;
+import com.erp.sales.repository.SaleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Checks that a sales summary read in parallel partitions equals the one read in a
+ * single query over the whole range.
+ */
+@PostgresTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReportServiceImplTest {
+
+    // Later than any real sale, so the test's rollups are the only ones in the range
+    private static final LocalDate FIRST_DAY = LocalDate.of(2996, 1, 1);
+    private static final int DAYS = 100;
+    private static final String[] PAYMENT_METHODS = {"CASH", "CARD", "BANK_TRANSFER"};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @BeforeEach
+    void insertRollups() {
+        Random random = new Random(11);
+        for (int d = 0; d < DAYS; d++) {
+            LocalDate day = FIRST_DAY.plusDays(d);
+            for (String paymentMethod : PAYMENT_METHODS) {
+                jdbcTemplate.update("INSERT INTO sales_daily_payment_rollup " +
+                        "(sale_day, payment_method, slot, sales_count, revenue, tax, discount) " +
+                        "VALUES (?, ?, 0, ?, ?, ?, ?)", day, paymentMethod, 1 + random.nextInt(20),
+                        cents(random, 100_000), cents(random, 10_000), cents(random, 1_000));
+            }
+            for (long productId = 1; productId <= 30; productId++) {
+                if (random.nextInt(3) == 0) {
+                    continue;
+                }
+                jdbcTemplate.update("INSERT INTO sales_daily_product_rollup " +
+                        "(sale_day, product_id, slot, product_name, quantity_sold, revenue) " +
+                        "VALUES (?, ?, 0, ?, ?, ?)", day, productId, "Product " + productId,
+                        1 + random.nextInt(10), cents(random, 50_000));
+            }
+        }
+    }
+
+    @AfterEach
+    void deleteRollups() {
+        LocalDate lastDay = FIRST_DAY.plusDays(DAYS - 1);
+        jdbcTemplate.update("DELETE FROM sales_daily_payment_rollup WHERE sale_day BETWEEN ? AND ?",
+                FIRST_DAY, lastDay);
+        jdbcTemplate.update("DELETE FROM sales_daily_product_rollup WHERE sale_day BETWEEN ? AND ?",
+                FIRST_DAY, lastDay);
+    }
+
+    @Test
+    void partitionedSummaryEqualsSequentialOne() {
+        ReportServiceImpl sequential = reportService(1);
+        ReportServiceImpl partitioned = reportService(4);
+        try {
+            for (ProductRanking ranking : ProductRanking.values()) {
+                LocalDate lastDay = FIRST_DAY.plusDays(DAYS - 1);
+                SalesReportSummary expected = sequential.generateSalesReport(FIRST_DAY, lastDay, 20, ranking);
+
+                assertThat(expected.getTotalSales()).isPositive();
+                assertThat(partitioned.generateSalesReport(FIRST_DAY, lastDay, 20, ranking)).isEqualTo(expected);
+                // A range that ends inside a partition
+                assertThat(partitioned.generateSalesReport(FIRST_DAY.plusDays(3), lastDay.minusDays(5), 20, ranking))
+                        .isEqualTo(sequential.generateSalesReport(FIRST_DAY.plusDays(3), lastDay.minusDays(5),
+                                20, ranking));
+            }
+        } finally {
+            sequential.stop();
+            partitioned.stop();
+        }
+    }
+
+    /**
+     * A report service reading ranges longer than a week in partitions of a week.
+     */
+    private ReportServiceImpl reportService(int partitionThreads) {
+        return new ReportServiceImpl(saleRepository, jdbcTemplate, mock(ReportCache.class), transactionManager,
+                7, partitionThreads, 100, Duration.ofSeconds(30));
+    }
+
+    private static BigDecimal cents(Random random, int bound) {
+        return BigDecimal.valueOf(random.nextInt(bound), 2);
+    }
+}
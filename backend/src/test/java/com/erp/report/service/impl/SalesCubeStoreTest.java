@@ -0,0 +1,236 @@
+package com.erp.report.service.impl;
+
+import com.erp.report.dto.SalesCubeDimension;
+import com.erp.sales.entity.Sale;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the sales cube store's scans against totals computed directly from the
+ * appended items, and its cancellation and lookup scans.
+ */
+class SalesCubeStoreTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 3, 1);
+    private static final int DAYS = 10;
+    private static final String[] CATEGORIES = {"Drinks", "Snacks", "Dairy", "Bakery", null};
+
+    private final SalesCubeStore store = new SalesCubeStore();
+    private final List<Row> rows = new ArrayList<>();
+    private final Set<Long> cancelled = new HashSet<>();
+
+    @Test
+    void scansMatchTotalsComputedFromTheItems() {
+        appendRandomSales(2000, new Random(42));
+        int from = day(0);
+        int to = day(DAYS - 1);
+
+        assertScan(from, to, List.of(), Map.of());
+        assertScan(from, to, List.of(SalesCubeDimension.PRODUCT),
+                Map.of(SalesCubeDimension.CATEGORY, Set.of("Drinks", "Dairy")));
+        assertScan(day(2), day(6), List.of(SalesCubeDimension.CASHIER, SalesCubeDimension.HOUR), Map.of());
+        assertScan(from, to, List.of(SalesCubeDimension.DAY, SalesCubeDimension.PAYMENT_METHOD),
+                Map.of(SalesCubeDimension.CASHIER, Set.of(1L, 2L), SalesCubeDimension.HOUR, Set.of(9, 10, 11)));
+        assertScan(day(4), day(4), List.of(SalesCubeDimension.CATEGORY), Map.of());
+    }
+
+    @Test
+    void cancelledSalesAreLeftOutOfScans() {
+        appendRandomSales(2000, new Random(7));
+        for (long saleId = 1; saleId <= 2000; saleId += 3) {
+            long sale = saleId;
+            int items = store.cancel(sale, dayOf(sale));
+            assertThat(items).isEqualTo(rows.stream().filter(row -> row.saleId() == sale).count());
+            cancelled.add(sale);
+        }
+
+        assertScan(day(0), day(DAYS - 1), List.of(SalesCubeDimension.PRODUCT), Map.of());
+        assertScan(day(1), day(3), List.of(SalesCubeDimension.CASHIER, SalesCubeDimension.DAY), Map.of());
+    }
+
+    @Test
+    void cancelFindsSaleAcrossChunkBoundary() {
+        for (int i = 0; i < SalesCubeStore.CHUNK_SIZE - 1; i++) {
+            append(new Row(1, 1, "Drinks", 1, 0, FIRST_DAY.atTime(9, 0), 1, 100));
+        }
+        // First item in the first chunk, the other two in the second
+        for (int i = 0; i < 3; i++) {
+            append(new Row(2, 2, "Snacks", 1, 0, FIRST_DAY.atTime(10, 0), 2, 250));
+        }
+        append(new Row(3, 3, "Dairy", 1, 0, FIRST_DAY.atTime(11, 0), 1, 300));
+
+        assertThat(store.cancel(2, day(0))).isEqualTo(3);
+        cancelled.add(2L);
+        assertScan(day(0), day(0), List.of(SalesCubeDimension.PRODUCT), Map.of());
+        assertThat(store.cancel(3, day(0))).isEqualTo(1);
+    }
+
+    @Test
+    void cancelSkipsChunksWithoutTheSaleDay() {
+        append(new Row(1, 1, "Drinks", 1, 0, FIRST_DAY.atTime(9, 0), 1, 100));
+
+        assertThat(store.cancel(1, day(1))).isZero();
+        assertThat(store.cancel(99, day(0))).isZero();
+        assertThat(store.cancel(1, day(0))).isEqualTo(1);
+    }
+
+    @Test
+    void containsSaleSinceStopsAtOlderDays() {
+        append(new Row(1, 1, "Drinks", 1, 0, FIRST_DAY.plusDays(5).atTime(9, 0), 1, 100));
+        append(new Row(2, 1, "Drinks", 1, 0, FIRST_DAY.atTime(9, 0), 1, 100));
+        append(new Row(3, 1, "Drinks", 1, 0, FIRST_DAY.plusDays(8).atTime(9, 0), 1, 100));
+
+        assertThat(store.containsSaleSince(3, day(8))).isTrue();
+        assertThat(store.containsSaleSince(2, day(0))).isTrue();
+        // Sale 1 is only behind an older day
+        assertThat(store.containsSaleSince(1, day(5))).isFalse();
+        assertThat(store.containsSaleSince(4, day(0))).isFalse();
+    }
+
+    @Test
+    void groupTotalsKeepEveryKeyAcrossGrowth() {
+        SalesCubeStore.GroupTotals totals = new SalesCubeStore.GroupTotals();
+        int keys = 5000;
+        for (int round = 1; round <= 3; round++) {
+            for (long key = 0; key < keys; key++) {
+                totals.add(key << 20, 1, round, key);
+            }
+        }
+
+        assertThat(totals.size()).isEqualTo(keys);
+        Map<Long, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < totals.size(); i++) {
+            indexes.put(totals.key(i), i);
+        }
+        for (long key = 0; key < keys; key++) {
+            int index = indexes.get(key << 20);
+            assertThat(totals.lines(index)).isEqualTo(3);
+            assertThat(totals.quantity(index)).isEqualTo(6);
+            assertThat(totals.cents(index)).isEqualTo(3 * key);
+        }
+    }
+
+    /**
+     * Appends sales of one to four items, on random days in no particular order.
+     */
+    private void appendRandomSales(int sales, Random random) {
+        for (long saleId = 1; saleId <= sales; saleId++) {
+            LocalDateTime saleDate = FIRST_DAY.plusDays(random.nextInt(DAYS)).atTime(8 + random.nextInt(12), 0);
+            long cashierId = 1 + random.nextInt(5);
+            int paymentMethod = random.nextInt(Sale.PaymentMethod.values().length);
+            int items = 1 + random.nextInt(4);
+            for (int i = 0; i < items; i++) {
+                int product = 1 + random.nextInt(20);
+                append(new Row(saleId, product, CATEGORIES[product % CATEGORIES.length], cashierId, paymentMethod,
+                        saleDate, 1 + random.nextInt(5), 50 + random.nextInt(5000)));
+            }
+        }
+    }
+
+    private void append(Row row) {
+        rows.add(row);
+        store.append(row.saleId(), row.productId(), row.category(), row.cashierId(), row.paymentMethod(),
+                row.saleDate(), row.quantity(), row.cents());
+    }
+
+    private void assertScan(int fromDay, int toDay, List<SalesCubeDimension> groupBy,
+                            Map<SalesCubeDimension, Set<Object>> filters) {
+        // Categories include null, which Set.of refuses to look up
+        Map<SalesCubeDimension, Set<Object>> allowedValues = new HashMap<>();
+        filters.forEach((dimension, values) -> allowedValues.put(dimension, new HashSet<>(values)));
+        Map<List<Object>, List<Long>> expected = new HashMap<>();
+        for (Row row : rows) {
+            int day = (int) row.saleDate().toLocalDate().toEpochDay();
+            if (day < fromDay || day > toDay || cancelled.contains(row.saleId())
+                    || !allowedValues.entrySet().stream().allMatch(f -> f.getValue().contains(row.value(f.getKey())))) {
+                continue;
+            }
+            List<Object> group = groupBy.stream().map(row::value).toList();
+            List<Long> total = expected.getOrDefault(group, List.of(0L, 0L, 0L));
+            expected.put(group, List.of(total.get(0) + 1, total.get(1) + row.quantity(), total.get(2) + row.cents()));
+        }
+
+        SalesCubeDimension[] dimensions = groupBy.toArray(SalesCubeDimension[]::new);
+        int[] radices = new int[dimensions.length];
+        for (int d = 0; d < dimensions.length; d++) {
+            radices[d] = dimensions[d] == SalesCubeDimension.DAY ? toDay - fromDay + 1
+                    : Math.max(1, store.cardinality(dimensions[d]));
+        }
+        boolean[][] allowed = new boolean[SalesCubeDimension.values().length][];
+        filters.forEach((dimension, values) -> {
+            allowed[dimension.ordinal()] = new boolean[store.cardinality(dimension)];
+            values.forEach(value -> allowed[dimension.ordinal()][code(dimension, value)] = true);
+        });
+        SalesCubeStore.GroupTotals totals = store.scan(
+                new SalesCubeStore.Scan(fromDay, toDay, dimensions, radices, allowed));
+
+        Map<List<Object>, List<Long>> actual = new HashMap<>();
+        for (int i = 0; i < totals.size(); i++) {
+            Object[] values = new Object[dimensions.length];
+            long key = totals.key(i);
+            for (int d = dimensions.length - 1; d >= 0; d--) {
+                values[d] = decode(dimensions[d], (int) (key % radices[d]), fromDay);
+                key /= radices[d];
+            }
+            actual.put(Arrays.asList(values), List.of(totals.lines(i), totals.quantity(i), totals.cents(i)));
+        }
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    private int code(SalesCubeDimension dimension, Object value) {
+        return switch (dimension) {
+            case PRODUCT -> store.productCode((Long) value);
+            case CATEGORY -> store.categoryCode((String) value);
+            case CASHIER -> store.cashierCode((Long) value);
+            case PAYMENT_METHOD, HOUR -> (Integer) value;
+            case DAY -> throw new IllegalArgumentException("Days are not filtered");
+        };
+    }
+
+    private Object decode(SalesCubeDimension dimension, int code, int fromDay) {
+        return switch (dimension) {
+            case PRODUCT -> store.productId(code);
+            case CATEGORY -> store.category(code);
+            case CASHIER -> store.cashierId(code);
+            case PAYMENT_METHOD, HOUR -> code;
+            case DAY -> fromDay + code;
+        };
+    }
+
+    private int dayOf(long saleId) {
+        return rows.stream().filter(row -> row.saleId() == saleId).findFirst()
+                .map(row -> (int) row.saleDate().toLocalDate().toEpochDay())
+                .orElseThrow();
+    }
+
+    private static int day(int offset) {
+        return (int) FIRST_DAY.plusDays(offset).toEpochDay();
+    }
+
+    private record Row(long saleId, long productId, String category, long cashierId, int paymentMethod,
+                       LocalDateTime saleDate, int quantity, long cents) {
+
+        private Object value(SalesCubeDimension dimension) {
+            return switch (dimension) {
+                case PRODUCT -> productId;
+                case CATEGORY -> category;
+                case CASHIER -> cashierId;
+                case PAYMENT_METHOD -> paymentMethod;
+                case HOUR -> saleDate.getHour();
+                case DAY -> (int) saleDate.toLocalDate().toEpochDay();
+            };
+        }
+    }
+}
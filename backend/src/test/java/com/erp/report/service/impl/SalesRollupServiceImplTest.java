@@ -0,0 +1,99 @@
+package com.erp.report.service.impl;
+
+import com.erp.PostgresTest;
+import com.erp.common.exception.BadRequestException;
+import com.erp.report.service.ReportCache;
+import com.erp.report.service.SalesRollupService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that sales written directly to the database are added to the rollups, and
+ * that rebuilds refuse ranges that are backwards or too long.
+ */
+@PostgresTest
+@Import(SalesRollupServiceImpl.class)
+class SalesRollupServiceImplTest {
+
+    // Later than any real sale, so the test's rows are the only ones on the day
+    private static final LocalDate DAY = LocalDate.of(2998, 6, 1);
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private ReportCache reportCache;
+
+    @Test
+    void addSalesAddsOnlyTheGivenCompletedSales() {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        Long userId = jdbcTemplate.queryForObject(
+                "INSERT INTO users (username, password, full_name, role) " +
+                "VALUES (?, 'unused', 'Rollup', 'CASHIER') RETURNING id", Long.class, "it-" + tag);
+        Long productId = jdbcTemplate.queryForObject(
+                "INSERT INTO products (sku, name, price, stock_quantity) " +
+                "VALUES (?, 'Rollup product', 2.50, 0) RETURNING id", Long.class, "IT-" + tag);
+        List<Long> added = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            added.add(insertSale(tag + "-" + i, userId, productId, "COMPLETED"));
+        }
+        added.add(insertSale(tag + "-c", userId, productId, "CANCELLED"));
+        // Not passed to addSales, so not counted
+        insertSale(tag + "-o", userId, productId, "COMPLETED");
+
+        salesRollupService.addSales(added);
+
+        Map<String, Object> payments = jdbcTemplate.queryForMap(
+                "SELECT SUM(sales_count) AS sales_count, SUM(revenue) AS revenue " +
+                "FROM sales_daily_payment_rollup WHERE sale_day = ?", DAY);
+        assertThat(((Number) payments.get("sales_count")).longValue()).isEqualTo(3);
+        assertThat((BigDecimal) payments.get("revenue")).isEqualByComparingTo("15.00");
+        Map<String, Object> products = jdbcTemplate.queryForMap(
+                "SELECT SUM(quantity_sold) AS quantity_sold, SUM(revenue) AS revenue " +
+                "FROM sales_daily_product_rollup WHERE sale_day = ? AND product_id = ?", DAY, productId);
+        assertThat(((Number) products.get("quantity_sold")).longValue()).isEqualTo(6);
+        assertThat((BigDecimal) products.get("revenue")).isEqualByComparingTo("15.00");
+    }
+
+    @Test
+    void rebuildRefusesBackwardsRange() {
+        assertThatThrownBy(() -> salesRollupService.rebuild(DAY, DAY.minusDays(1)))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void rebuildRefusesRangeLongerThanTheLimit() {
+        assertThatThrownBy(() -> salesRollupService.rebuild(DAY, DAY.plusDays(366)))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    /**
+     * Inserts a sale of two items at 2.50 each on DAY.
+     */
+    private Long insertSale(String saleNumber, Long userId, Long productId, String status) {
+        Long saleId = jdbcTemplate.queryForObject(
+                "INSERT INTO sales (sale_number, user_id, subtotal, tax_amount, discount_amount, total_amount, " +
+                "payment_method, status, sale_date) VALUES (?, ?, 5.00, 0, 0, 5.00, 'CASH', ?, ?) RETURNING id",
+                Long.class, "IT-" + saleNumber, userId, status, DAY.atTime(12, 0));
+        jdbcTemplate.update(
+                "INSERT INTO sale_items (sale_id, product_id, product_name, product_sku, quantity, unit_price, " +
+                "line_total) VALUES (?, ?, 'Rollup product', 'IT', 2, 2.50, 5.00)", saleId, productId);
+        return saleId;
+    }
+}
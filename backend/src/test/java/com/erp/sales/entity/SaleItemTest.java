@@ -0,0 +1,66 @@
+package com.erp.sales.entity;
+
+import com.erp.common.money.Money;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that line totals are rounded to cents half up, as PostgreSQL rounds the
+ * unrounded total when storing it.
+ */
+class SaleItemTest {
+
+    @Test
+    void lineTotalIsRoundedToCents() {
+        // 3 x 3.33 less 15% is 8.4915
+        SaleItem item = item("3.33", 3, "15");
+
+        assertThat(item.calculateLineTotal()).isEqualTo(Money.ofCents(849));
+        assertThat(item.getLineTotal()).isEqualTo(new BigDecimal("8.49"));
+    }
+
+    @Test
+    void halfCentIsRoundedUp() {
+        // 1 x 0.05 less 50% is 0.025
+        assertThat(item("0.05", 1, "50").calculateLineTotal()).isEqualTo(Money.ofCents(3));
+    }
+
+    @Test
+    void missingDiscountTakesNothingOff() {
+        SaleItem item = item("2.50", 4, null);
+
+        assertThat(item.calculateLineTotal()).isEqualTo(Money.ofCents(1000));
+        assertThat(item.getLineTotal()).isEqualTo(new BigDecimal("10.00"));
+    }
+
+    @Test
+    void lineTotalMatchesRoundedBigDecimalTotal() {
+        Random random = new Random(13);
+        for (int i = 0; i < 10_000; i++) {
+            BigDecimal unitPrice = BigDecimal.valueOf(random.nextInt(1, 1_000_000), 2);
+            int quantity = random.nextInt(1, 100);
+            BigDecimal discount = BigDecimal.valueOf(random.nextInt(10_001), 2);
+            // The calculation before Money, rounded as the numeric(12, 2) column does
+            BigDecimal expected = unitPrice.multiply(BigDecimal.valueOf(quantity))
+                    .multiply(BigDecimal.ONE.subtract(discount.divide(BigDecimal.valueOf(100))))
+                    .setScale(2, RoundingMode.HALF_UP);
+
+            SaleItem item = item(unitPrice.toPlainString(), quantity, discount.toPlainString());
+            assertThat(item.calculateLineTotal().toBigDecimal()).isEqualTo(expected);
+            assertThat(item.getLineTotal()).isEqualTo(expected);
+        }
+    }
+
+    private static SaleItem item(String unitPrice, int quantity, String discountPercent) {
+        return SaleItem.builder()
+                .unitPrice(new BigDecimal(unitPrice))
+                .quantity(quantity)
+                .discountPercent(discountPercent != null ? new BigDecimal(discountPercent) : null)
+                .build();
+    }
+}
@@ -0,0 +1,123 @@
+package com.erp.sales.repository;
+
+import com.erp.PostgresTest;
+import com.erp.sales.dto.SaleResponse;
+import com.erp.sales.entity.Sale;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that listing sales with their users and items costs the same number of
+ * statements whatever the page size, so no query runs per sale, and that a sale read
+ * with its details maps to a response once detached, as it must with open-in-view off.
+ */
+@PostgresTest
+class SaleRepositoryTest {
+
+    private static final int SALES = 20;
+    private static final int ITEMS_PER_SALE = 3;
+    // Later than any real sale, so the test sales come first newest first
+    private static final LocalDateTime SALE_DATE = LocalDateTime.of(2999, 1, 1, 0, 0);
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+    private String firstSaleNumber;
+
+    /**
+     * Inserts the sales in the test's transaction, which is rolled back afterwards.
+     */
+    @BeforeEach
+    void createSales() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        Long userId = jdbcTemplate.queryForObject(
+                "INSERT INTO users (username, password, full_name, role) " +
+                "VALUES (?, 'unused', 'Statement Count', 'CASHIER') RETURNING id",
+                Long.class, "it-" + tag);
+        Long productId = jdbcTemplate.queryForObject(
+                "INSERT INTO products (sku, name, price, stock_quantity) " +
+                "VALUES (?, 'Statement count product', 1.00, 0) RETURNING id",
+                Long.class, "IT-" + tag);
+        for (int i = 0; i < SALES; i++) {
+            Long saleId = jdbcTemplate.queryForObject(
+                    "INSERT INTO sales (sale_number, user_id, subtotal, total_amount, payment_method, status, " +
+                    "sale_date) VALUES (?, ?, 3.00, 3.00, 'CASH', 'COMPLETED', ?) RETURNING id",
+                    Long.class, "IT-" + tag + "-" + i, userId, SALE_DATE.plusMinutes(i));
+            if (i == 0) {
+                firstSaleNumber = "IT-" + tag + "-" + i;
+            }
+            for (int j = 0; j < ITEMS_PER_SALE; j++) {
+                jdbcTemplate.update(
+                        "INSERT INTO sale_items (sale_id, product_id, product_name, product_sku, quantity, " +
+                        "unit_price, line_total) VALUES (?, ?, 'Statement count product', ?, 1, 1.00, 1.00)",
+                        saleId, productId, "IT-" + tag);
+            }
+        }
+    }
+
+    @Test
+    void pageOfSalesCostsFixedNumberOfStatements() {
+        long smallPage = statementsToList(2);
+        long fullPage = statementsToList(SALES);
+
+        // The page, the count and the items of the whole page
+        assertThat(smallPage).isLessThanOrEqualTo(3);
+        assertThat(fullPage).isEqualTo(smallPage);
+    }
+
+    @Test
+    void saleWithDetailsMapsOnceDetached() {
+        entityManager.clear();
+        Sale sale = saleRepository.findWithDetailsBySaleNumber(firstSaleNumber).orElseThrow();
+        Long saleId = sale.getId();
+        // Any lazy association the mapping touched would now throw
+        entityManager.clear();
+
+        SaleResponse bySaleNumber = SaleResponse.fromEntity(sale);
+        Sale byId = saleRepository.findWithDetailsById(saleId).orElseThrow();
+        entityManager.clear();
+
+        assertThat(bySaleNumber.getUserName()).isEqualTo("Statement Count");
+        assertThat(bySaleNumber.getItems()).hasSize(ITEMS_PER_SALE)
+                .allSatisfy(item -> assertThat(item.getProductId()).isNotNull());
+        assertThat(SaleResponse.fromEntity(byId)).isEqualTo(bySaleNumber);
+    }
+
+    /**
+     * Lists a page of sales as the sales endpoints do and counts the statements run.
+     */
+    private long statementsToList(int size) {
+        entityManager.clear();
+        statistics.clear();
+
+        Page<Sale> page = saleRepository.findAll(PageRequest.of(0, size, Sort.by(Sort.Direction.DESC, "saleDate")));
+        saleRepository.fetchItems(page.map(Sale::getId).getContent());
+        List<SaleResponse> responses = page.map(SaleResponse::fromEntity).getContent();
+
+        assertThat(responses).hasSize(size)
+                .allSatisfy(response -> assertThat(response.getItems()).hasSize(ITEMS_PER_SALE));
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,97 @@
+package com.erp.sales.service.impl;
+
+import com.erp.auth.entity.Role;
+import com.erp.auth.security.UserPrincipal;
+import com.erp.common.exception.ConflictException;
+import com.erp.common.exception.UnprocessableEntityException;
+import com.erp.sales.dto.SaleRequest;
+import com.erp.sales.dto.SaleResponse;
+import com.erp.sales.service.SaleService;
+import com.erp.sales.service.SaleWriteExecutor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the answers to a reused idempotency key: the original sale for the same
+ * request, 409 while the first request is still running and 422 for a different request.
+ */
+class SaleIdempotencyServiceImplTest {
+
+    private static final String KEY = "checkout-1";
+
+    private final SaleCreator saleCreator = mock(SaleCreator.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SaleWriteExecutor saleWriteExecutor = new SaleWriteExecutor() {
+        @Override
+        public <T> T execute(Supplier<T> write) {
+            return write.get();
+        }
+    };
+    private final SaleIdempotencyServiceImpl service = new SaleIdempotencyServiceImpl(mock(SaleService.class),
+            saleCreator, jdbcTemplate, saleWriteExecutor, new ObjectMapper(), Duration.ofHours(1), 100,
+            Duration.ofMillis(200));
+    private final UserPrincipal cashier = new UserPrincipal(1L, "cashier", null, "Cashier", Role.CASHIER, true);
+
+    @Test
+    void sameRequestReturnsTheOriginalSale() {
+        SaleResponse sale = SaleResponse.builder().id(10L).saleNumber("SL202401010001").build();
+        when(jdbcTemplate.update(anyString(), any(), any(), any())).thenReturn(1);
+        when(saleCreator.create(any(), any())).thenReturn(sale);
+
+        assertThat(service.createSale(KEY, request("first"), cashier)).isSameAs(sale);
+        assertThat(service.createSale(KEY, request("first"), cashier)).isSameAs(sale);
+    }
+
+    @Test
+    void differentRequestIsUnprocessable() {
+        when(jdbcTemplate.update(anyString(), any(), any(), any())).thenReturn(1);
+        when(saleCreator.create(any(), any())).thenReturn(SaleResponse.builder().id(10L).build());
+        service.createSale(KEY, request("first"), cashier);
+
+        assertThatThrownBy(() -> service.createSale(KEY, request("second"), cashier))
+                .isInstanceOf(UnprocessableEntityException.class);
+    }
+
+    @Test
+    void duplicateOfRunningRequestConflictsAfterTheWaitTimeout() throws Exception {
+        CountDownLatch creating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(jdbcTemplate.update(anyString(), any(), any(), any())).thenReturn(1);
+        when(saleCreator.create(any(), any())).thenAnswer(invocation -> {
+            creating.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return SaleResponse.builder().id(10L).build();
+        });
+        CompletableFuture<SaleResponse> first =
+                CompletableFuture.supplyAsync(() -> service.createSale(KEY, request("first"), cashier));
+        assertThat(creating.await(5, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            assertThatThrownBy(() -> service.createSale(KEY, request("first"), cashier))
+                    .isInstanceOf(ConflictException.class);
+        } finally {
+            release.countDown();
+        }
+        assertThat(first.get(5, TimeUnit.SECONDS).getId()).isEqualTo(10L);
+    }
+
+    private static SaleRequest request(String notes) {
+        SaleRequest request = new SaleRequest();
+        request.setNotes(notes);
+        return request;
+    }
+}
@@ -0,0 +1,80 @@
+package com.erp.sales.service.impl;
+
+import com.erp.PostgresTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that two nodes making the first sale of a new day at the same time both get
+ * a sale number, from one shared sequence.
+ */
+@PostgresTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SaleNumberAllocatorImplTest {
+
+    // Later than any real sale, so the test's sequences are the only ones for these days
+    private static final LocalDate FIRST_DAY = LocalDate.of(2997, 1, 1);
+    private static final int DAYS = 20;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void dropSequences() {
+        for (int i = 0; i < DAYS; i++) {
+            jdbcTemplate.execute("DROP SEQUENCE IF EXISTS sale_number_seq_" +
+                    FIRST_DAY.plusDays(i).format(DateTimeFormatter.ofPattern("yyyyMMdd")));
+        }
+    }
+
+    @Test
+    void nodesRacingToCreateTheDaySequenceBothGetNumbers() throws Exception {
+        List<SaleNumberAllocatorImpl> nodes = List.of(
+                new SaleNumberAllocatorImpl(jdbcTemplate, transactionManager, 50),
+                new SaleNumberAllocatorImpl(jdbcTemplate, transactionManager, 50));
+        TransactionTemplate checkout = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(nodes.size());
+        try {
+            for (int i = 0; i < DAYS; i++) {
+                LocalDate day = FIRST_DAY.plusDays(i);
+                CyclicBarrier start = new CyclicBarrier(nodes.size());
+                List<Future<String>> saleNumbers = new ArrayList<>();
+                for (SaleNumberAllocatorImpl node : nodes) {
+                    saleNumbers.add(executor.submit(() -> {
+                        start.await();
+                        // Like a checkout, which allocates inside its own transaction
+                        return checkout.execute(status -> node.nextSaleNumber(day));
+                    }));
+                }
+
+                String first = saleNumbers.get(0).get(10, TimeUnit.SECONDS);
+                String second = saleNumbers.get(1).get(10, TimeUnit.SECONDS);
+                assertThat(first).startsWith("SL" + day.format(DateTimeFormatter.ofPattern("yyyyMMdd")));
+                assertThat(first).isNotEqualTo(second);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}